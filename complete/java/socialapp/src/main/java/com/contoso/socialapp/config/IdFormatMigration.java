@@ -0,0 +1,124 @@
+package com.contoso.socialapp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Converts stored post and comment IDs between text and 16-byte binary form
+ * after Flyway has migrated a database, so that an existing {@code sns_api.db}
+ * follows {@code socialapp.storage.binary-ids} when the setting changes.
+ * <p>
+ * The current form is recorded in {@code storage_settings}, so a database that
+ * already matches is left alone without scanning its tables. A conversion
+ * rewrites every ID column in one transaction and then runs {@code VACUUM} to
+ * hand the freed pages back.
+ */
+@Slf4j
+public class IdFormatMigration implements Callback {
+    
+    // The shape UUID.fromString accepts at 36 characters; unhex would turn any other text into NULL
+    private static final String UUID_GLOB = "'" + hexDigits(8) + "-" + hexDigits(4) + "-" + hexDigits(4) + "-"
+            + hexDigits(4) + "-" + hexDigits(12) + "'";
+    
+    private static final String[][] ID_COLUMNS = {
+            {"posts", "id"},
+            {"comments", "id"},
+            {"comments", "post_id"},
+            {"likes", "post_id"},
+            {"search_docs", "doc_id"}
+    };
+    
+    private final boolean binary;
+    
+    public IdFormatMigration(boolean binary) {
+        this.binary = binary;
+    }
+    
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.AFTER_MIGRATE;
+    }
+    
+    // VACUUM cannot run inside a transaction
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return false;
+    }
+    
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            apply(context.getConnection());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not convert stored IDs to " + format() + " form", e);
+        }
+    }
+    
+    @Override
+    public String getCallbackName() {
+        return "idFormatMigration";
+    }
+    
+    public void apply(Connection con) throws SQLException {
+        String current = currentFormat(con);
+        if (format().equals(current)) {
+            return;
+        }
+        
+        log.info("Converting stored post and comment IDs from {} to {} form", current, format());
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (Statement statement = con.createStatement()) {
+            for (String[] column : ID_COLUMNS) {
+                int converted = statement.executeUpdate(binary ? toBinary(column[0], column[1]) : toText(column[0], column[1]));
+                log.info("Converted {} values of {}.{}", converted, column[0], column[1]);
+            }
+            statement.executeUpdate("UPDATE storage_settings SET value = '" + format() + "' WHERE name = 'id_format'");
+            con.commit();
+        } catch (SQLException e) {
+            con.rollback();
+            throw e;
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+        
+        try (Statement statement = con.createStatement()) {
+            statement.execute("VACUUM");
+        }
+    }
+    
+    private String format() {
+        return binary ? "binary" : "text";
+    }
+    
+    private static String currentFormat(Connection con) throws SQLException {
+        try (PreparedStatement query = con.prepareStatement("SELECT value FROM storage_settings WHERE name = 'id_format'");
+             ResultSet rs = query.executeQuery()) {
+            return rs.next() ? rs.getString(1) : "text";
+        }
+    }
+    
+    // Only UUID-shaped values are converted; anything else stays text, matching CompactIdType
+    private static String toBinary(String table, String column) {
+        return String.format("UPDATE %1$s SET %2$s = unhex(replace(%2$s, '-', '')) "
+                + "WHERE typeof(%2$s) = 'text' AND %2$s GLOB %3$s", table, column, UUID_GLOB);
+    }
+    
+    private static String hexDigits(int count) {
+        return "[0-9A-Fa-f]".repeat(count);
+    }
+    
+    private static String toText(String table, String column) {
+        return String.format("UPDATE %1$s SET %2$s = lower(substr(hex(%2$s), 1, 8) || '-' || substr(hex(%2$s), 9, 4) "
+                + "|| '-' || substr(hex(%2$s), 13, 4) || '-' || substr(hex(%2$s), 17, 4) || '-' || substr(hex(%2$s), 21)) "
+                + "WHERE typeof(%2$s) = 'blob' AND length(%2$s) = 16", table, column);
+    }
+}
@@ -0,0 +1,29 @@
+package com.contoso.socialapp.config;
+
+import com.contoso.socialapp.entity.CompactIdType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies {@code socialapp.storage.binary-ids}: Flyway picks up the
+ * {@link IdFormatMigration} callback, and {@link CompactIdType} reads the
+ * setting from the Hibernate properties of the entity manager factory.
+ */
+@Configuration
+public class IdStorageConfig {
+    
+    @Value("${socialapp.storage.binary-ids:false}")
+    private boolean binaryIds;
+    
+    @Bean
+    public IdFormatMigration idFormatMigration() {
+        return new IdFormatMigration(binaryIds);
+    }
+    
+    @Bean
+    public HibernatePropertiesCustomizer compactIdTypeCustomizer() {
+        return properties -> properties.put(CompactIdType.BINARY_SETTING, binaryIds);
+    }
+}
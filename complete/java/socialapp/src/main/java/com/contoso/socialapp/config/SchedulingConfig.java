@@ -0,0 +1,15 @@
+package com.contoso.socialapp.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background jobs such as counter reconciliation, unless
+ * {@code socialapp.scheduling.enabled} is false.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "socialapp.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
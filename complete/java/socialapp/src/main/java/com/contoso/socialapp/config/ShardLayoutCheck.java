@@ -0,0 +1,90 @@
+package com.contoso.socialapp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Stops a shard file from being opened under a different shard layout than the
+ * one it was filled under. Posts are placed by a hash of their ID modulo
+ * {@code socialapp.storage.shards.count}, so changing the count, or the order
+ * of the files, would silently hide every post whose hash now points elsewhere.
+ * <p>
+ * The shard count and the file's own index are recorded in
+ * {@code storage_settings} after Flyway has migrated the shard the first time;
+ * on every later start a mismatch fails startup instead of serving the shard.
+ */
+@Slf4j
+public class ShardLayoutCheck implements Callback {
+    
+    private final int shard;
+    private final int shardCount;
+    
+    public ShardLayoutCheck(int shard, int shardCount) {
+        this.shard = shard;
+        this.shardCount = shardCount;
+    }
+    
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.AFTER_MIGRATE;
+    }
+    
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+    
+    @Override
+    public void handle(Event event, Context context) {
+        try {
+            apply(context.getConnection());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not check the layout of shard " + shard, e);
+        }
+    }
+    
+    @Override
+    public String getCallbackName() {
+        return "shardLayoutCheck";
+    }
+    
+    public void apply(Connection con) throws SQLException {
+        String recordedCount = setting(con, "shard_count");
+        String recordedIndex = setting(con, "shard_index");
+        if (recordedCount == null && recordedIndex == null) {
+            log.info("Recording shard {} of {} in its storage settings", shard, shardCount);
+            record(con, "shard_count", shardCount);
+            record(con, "shard_index", shard);
+            return;
+        }
+        if (!String.valueOf(shardCount).equals(recordedCount) || !String.valueOf(shard).equals(recordedIndex)) {
+            throw new IllegalStateException("Shard file " + shard + " of " + shardCount + " was created as shard "
+                    + recordedIndex + " of " + recordedCount + "; posts would no longer be found in the shard "
+                    + "their ID hashes to. Restore socialapp.storage.shards.count and path-pattern, or re-shard the data first");
+        }
+    }
+    
+    private static String setting(Connection con, String name) throws SQLException {
+        try (PreparedStatement query = con.prepareStatement("SELECT value FROM storage_settings WHERE name = ?")) {
+            query.setString(1, name);
+            try (ResultSet rs = query.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+    
+    private static void record(Connection con, String name, int value) throws SQLException {
+        try (PreparedStatement insert = con.prepareStatement("INSERT INTO storage_settings (name, value) VALUES (?, ?)")) {
+            insert.setString(1, name);
+            insert.setString(2, String.valueOf(value));
+            insert.executeUpdate();
+        }
+    }
+}
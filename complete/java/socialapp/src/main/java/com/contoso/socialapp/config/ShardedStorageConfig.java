@@ -0,0 +1,130 @@
+package com.contoso.socialapp.config;
+
+import com.contoso.socialapp.service.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.sqlite.SQLiteConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash-sharded SQLite storage, enabled with the {@code sqlite-sharded} profile.
+ * <p>
+ * Posts, with their comments and likes, are spread over
+ * {@code socialapp.storage.shards.count} database files by {@link ShardRouter}.
+ * Each shard is laid out like the {@code sqlite-wal} profile (see
+ * {@link SqliteStorageConfig}): one writer connection plus a small reader pool,
+ * so each shard has its own write lock and write throughput grows with the
+ * number of shards. Every shard file is migrated by Flyway on startup, and
+ * startup fails if a file was created under a different shard count or index
+ * (see {@link ShardLayoutCheck}).
+ */
+@Configuration
+@Profile("sqlite-sharded")
+@Slf4j
+public class ShardedStorageConfig {
+    
+    @Value("${socialapp.storage.shards.count}")
+    private int shardCount;
+    
+    @Value("${socialapp.storage.shards.path-pattern:sns_api-shard-%d.db}")
+    private String pathPattern;
+    
+    @Value("${socialapp.storage.shards.reader-pool-size:2}")
+    private int readerPoolSize;
+    
+    @Value("${socialapp.storage.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+    
+    @Value("${socialapp.storage.sqlite.cache-size-kib:65536}")
+    private int cacheSizeKib;
+    
+    @Value("${socialapp.storage.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+    
+    @Bean(destroyMethod = "close")
+    ShardRoutingDataSource shardRoutingDataSource(IdFormatMigration idFormatMigration) {
+        SQLiteConfig pragmas = SqliteStorageConfig.tunedPragmas(mmapSize, cacheSizeKib, busyTimeoutMs);
+        List<HikariDataSource> pools = new ArrayList<>(shardCount * 2);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            String url = "jdbc:sqlite:" + String.format(pathPattern, shard);
+            // The writer opens the file first so that the WAL switch happens before any reader connects
+            HikariDataSource writer = SqliteStorageConfig.sqlitePool("shard-" + shard + "-writer", url, 1, false, pragmas);
+            migrate(writer, idFormatMigration, new ShardLayoutCheck(shard, shardCount));
+            HikariDataSource reader = SqliteStorageConfig.sqlitePool("shard-" + shard + "-reader", url, readerPoolSize, true, pragmas);
+            
+            pools.add(writer);
+            pools.add(reader);
+            targets.put(new ShardKey(shard, false), writer);
+            targets.put(new ShardKey(shard, true), reader);
+        }
+        log.info("Sharded storage across {} SQLite files ({})", shardCount, pathPattern);
+        
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(pools);
+        routing.setTargetDataSources(targets);
+        // Unbound work such as Hibernate's startup metadata check goes to shard 0
+        routing.setDefaultTargetDataSource(targets.get(new ShardKey(0, false)));
+        return routing;
+    }
+    
+    /**
+     * Defers the shard lookup to the first statement, by which time the
+     * transaction has been bound to its shard and marked read-only or not.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("shardRoutingDataSource") DataSource routing) {
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+    
+    private static void migrate(DataSource shard, IdFormatMigration idFormatMigration, ShardLayoutCheck layoutCheck) {
+        Flyway.configure()
+                .dataSource(shard)
+                .callbacks(idFormatMigration, layoutCheck)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+    
+    record ShardKey(int shard, boolean readOnly) {
+    }
+    
+    static class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+        
+        private final List<HikariDataSource> pools;
+        
+        ShardRoutingDataSource(List<HikariDataSource> pools) {
+            this.pools = pools;
+        }
+        
+        @Override
+        protected Object determineCurrentLookupKey() {
+            Integer shard = ShardRouter.currentShard();
+            if (shard == null) {
+                return null;
+            }
+            return new ShardKey(shard, TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        }
+        
+        @Override
+        public void close() {
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.contoso.socialapp.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+
+import javax.sql.DataSource;
+
+/**
+ * Tuned SQLite storage, enabled with the {@code sqlite-wal} profile.
+ * <p>
+ * Every connection runs in WAL mode with {@code synchronous=NORMAL}, memory-mapped
+ * I/O and a larger page cache. Read-only transactions are served by a pool of
+ * reader connections, while everything else goes through a single writer
+ * connection, so readers never wait on the write lock and writers never fight
+ * over it.
+ */
+@Configuration
+@Profile("sqlite-wal")
+public class SqliteStorageConfig {
+    
+    @Value("${socialapp.storage.sqlite.path:sns_api.db}")
+    private String path;
+    
+    @Value("${socialapp.storage.sqlite.reader-pool-size:0}")
+    private int readerPoolSize;
+    
+    @Value("${socialapp.storage.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+    
+    @Value("${socialapp.storage.sqlite.cache-size-kib:65536}")
+    private int cacheSizeKib;
+    
+    @Value("${socialapp.storage.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+    
+    @Bean(destroyMethod = "close")
+    public HikariDataSource sqliteWriterDataSource() {
+        return sqlitePool("sqlite-writer", "jdbc:sqlite:" + path, 1, false, tunedPragmas(mmapSize, cacheSizeKib, busyTimeoutMs));
+    }
+    
+    // The writer opens the file first so that the WAL switch happens before any reader connects
+    @Bean(destroyMethod = "close")
+    @DependsOn("sqliteWriterDataSource")
+    public HikariDataSource sqliteReaderDataSource() {
+        int size = readerPoolSize > 0 ? readerPoolSize : Runtime.getRuntime().availableProcessors();
+        return sqlitePool("sqlite-reader", "jdbc:sqlite:" + path, size, true, tunedPragmas(mmapSize, cacheSizeKib, busyTimeoutMs));
+    }
+    
+    /**
+     * Hands out writer connections unless the surrounding transaction is read-only.
+     * The target is only chosen at the first statement, by which time Spring has
+     * marked the connection read-only for {@code @Transactional(readOnly = true)}.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("sqliteWriterDataSource") DataSource writer,
+                                 @Qualifier("sqliteReaderDataSource") DataSource reader) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writer);
+        proxy.setReadOnlyDataSource(reader);
+        return proxy;
+    }
+    
+    public static SQLiteConfig tunedPragmas(long mmapSize, int cacheSizeKib, int busyTimeoutMs) {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        // A negative cache_size is a budget in KiB rather than a page count
+        config.setCacheSize(-cacheSizeKib);
+        config.setBusyTimeout(busyTimeoutMs);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        return config;
+    }
+    
+    public static HikariDataSource sqlitePool(String name, String url, int size, boolean readOnly, SQLiteConfig pragmas) {
+        HikariConfig hikari = new HikariConfig();
+        hikari.setPoolName(name);
+        hikari.setDriverClassName("org.sqlite.JDBC");
+        hikari.setJdbcUrl(url);
+        hikari.setMaximumPoolSize(size);
+        hikari.setMinimumIdle(size);
+        hikari.setDataSourceProperties(pragmas.toProperties());
+        if (readOnly) {
+            // Guards against a write slipping onto a reader and racing the writer for the lock
+            hikari.setConnectionInitSql("PRAGMA query_only = 1");
+        }
+        return new HikariDataSource(hikari);
+    }
+}
@@ -0,0 +1,73 @@
+package com.contoso.socialapp.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Virtual-thread mode, switched on with {@code spring.threads.virtual.enabled}.
+ * <p>
+ * Spring Boot then serves requests, and runs the services they call, on
+ * virtual threads instead of Tomcat's platform-thread pool. This configuration
+ * adds what that mode needs around the database: the primary data source is
+ * wrapped in a {@link GatedDataSource} with {@code socialapp.db.gate.permits}
+ * permits (by default one less than the number of carrier threads, so a
+ * carrier is always free for requests that are not in the database), and
+ * {@link VirtualThreadPinningMonitor} reports carriers pinned by the driver.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig {
+    
+    // Static, so that the data source is wrapped no matter when it is created
+    @Bean
+    static BeanPostProcessor jdbcGate(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource) || bean instanceof GatedDataSource) {
+                    return bean;
+                }
+                int permits = environment.getProperty("socialapp.db.gate.permits", Integer.class, 0);
+                if (permits <= 0) {
+                    permits = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+                }
+                Duration acquireTimeout = environment.getProperty("socialapp.db.gate.acquire-timeout", Duration.class, Duration.ofSeconds(10));
+                log.info("Virtual threads enabled; at most {} concurrent database connections", permits);
+                return new GatedDataSource(dataSource, permits, acquireTimeout);
+            }
+        };
+    }
+    
+    @Bean
+    public MeterBinder jdbcGateMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof GatedDataSource gate) {
+                Gauge.builder("jdbc.gate.available", gate, GatedDataSource::getAvailablePermits)
+                        .description("Database permits not currently held")
+                        .register(registry);
+                Gauge.builder("jdbc.gate.waiting", gate, GatedDataSource::getWaiting)
+                        .description("Threads waiting for a database permit")
+                        .register(registry);
+            }
+        };
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "socialapp.threads.pinning-diagnostics.enabled", havingValue = "true", matchIfMissing = true)
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                                                   @Value("${socialapp.threads.pinning-threshold:20ms}") Duration threshold) {
+        return new VirtualThreadPinningMonitor(meterRegistry, threshold);
+    }
+}
@@ -0,0 +1,82 @@
+package com.contoso.socialapp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reports virtual threads that pin their carrier for longer than a threshold,
+ * using the JDK's own {@code jdk.VirtualThreadPinned} flight recorder event.
+ * <p>
+ * A virtual thread that blocks inside a {@code synchronized} block or a native
+ * call cannot unmount, so it holds on to a carrier thread; the SQLite driver
+ * does both on every statement. Each pinning is counted in the
+ * {@code jvm.threads.virtual.pinned} metric, tagged {@code sqlite-driver} when
+ * the driver is on the stack, and every distinct pinning site is logged once
+ * with its stack.
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+    
+    static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String DRIVER_PACKAGE = "org.sqlite.";
+    private static final int LOGGED_FRAMES = 8;
+    
+    private final Counter driverPinnings;
+    private final Counter otherPinnings;
+    private final Set<String> reportedSites = ConcurrentHashMap.newKeySet();
+    private final RecordingStream stream;
+    
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.driverPinnings = pinnedCounter(meterRegistry, "sqlite-driver");
+        this.otherPinnings = pinnedCounter(meterRegistry, "other");
+        this.stream = new RecordingStream();
+        stream.enable(EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Reporting virtual threads pinned for longer than {}", threshold);
+    }
+    
+    @Override
+    public void close() {
+        stream.close();
+    }
+    
+    void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        // The innermost driver frame is where the carrier got stuck; without one, the innermost frame
+        RecordedFrame site = frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(DRIVER_PACKAGE))
+                .findFirst()
+                .orElse(frames.isEmpty() ? null : frames.get(0));
+        boolean inDriver = site != null && site.getMethod().getType().getName().startsWith(DRIVER_PACKAGE);
+        (inDriver ? driverPinnings : otherPinnings).increment();
+        
+        String siteName = site == null ? "unknown" : describe(site);
+        if (reportedSites.add(siteName)) {
+            StringBuilder stack = new StringBuilder();
+            frames.stream().limit(LOGGED_FRAMES).forEach(frame -> stack.append("\n\tat ").append(describe(frame)));
+            log.warn("Virtual thread pinned its carrier for {} ms{} at {}{}", event.getDuration().toMillis(),
+                    inDriver ? " in the SQLite driver" : "", siteName, stack);
+        }
+    }
+    
+    private static Counter pinnedCounter(MeterRegistry meterRegistry, String source) {
+        return Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier")
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+    
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
@@ -24,6 +24,7 @@ public class WebConfig {
                         .allowedOriginPatterns("http://localhost:8080", "http://contoso-backend:8080", "https://*.app.github.dev")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "HEAD", "PATCH")
                         .allowedHeaders("*")
+                        .exposedHeaders("X-Next-Cursor", "X-Prev-Cursor", "ETag")
                         .allowCredentials(true)
                         .maxAge(3600);
             }
@@ -2,19 +2,32 @@ package com.contoso.socialapp.controller;
 
 import com.contoso.socialapp.dto.*;
 import com.contoso.socialapp.service.CommentService;
+import com.contoso.socialapp.service.GroupCommitExecutor;
 import com.contoso.socialapp.service.PostService;
+import com.contoso.socialapp.service.ResponseBodyCache;
+import com.contoso.socialapp.service.ResponseBodyCache.CachedResponse;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/posts/{postId}/comments")
@@ -25,25 +38,56 @@ public class CommentController {
     
     private final CommentService commentService;
     private final PostService postService;
+    private final GroupCommitExecutor groupCommitExecutor;
+    private final ResponseBodyCache responseBodyCache;
     
     @GetMapping
-    @Operation(summary = "List comments for a post", description = "Retrieve all comments on a specific post.")
+    @Operation(summary = "List comments for a post", description = "Retrieve comments on a specific post, oldest first, one page at a time. "
+            + "Page forward with after, backward with before (the X-Next-Cursor / X-Prev-Cursor response headers), "
+            + "or open a window centred on a comment with around. Set unpaged=true to list every comment. "
+            + "Send the ETag back in If-None-Match to get an empty 304 while the post's comments are unchanged.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved comments"),
-            @ApiResponse(responseCode = "404", description = "Post not found"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved comments", content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = CommentResponse.class)))),
+            @ApiResponse(responseCode = "304", description = "Comments unchanged since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, limit or parameter combination"),
+            @ApiResponse(responseCode = "404", description = "Post or anchor comment not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<CommentResponse>> getCommentsByPostId(@PathVariable String postId) {
+    public ResponseEntity<byte[]> getCommentsByPostId(@PathVariable String postId,
+                                                      @RequestParam(required = false) String after,
+                                                      @RequestParam(required = false) String before,
+                                                      @RequestParam(required = false) String around,
+                                                      @RequestParam(defaultValue = "50") int limit,
+                                                      WebRequest request) {
         try {
-            // Check if post exists
-            if (!postService.postExists(postId)) {
+            // The version alone decides a conditional request, before any comment is read
+            String etag = commentService.getCommentsVersion(postId).map(HttpCaching::commentsTag).orElse(null);
+            String key = ResponseBodyCache.commentPageKey(postId, after, before, around, limit);
+            if (etag != null && HttpCaching.isNotModified(request, etag)) {
+                return HttpCaching.notModified(etag, responseBodyCache.peek(key, etag), request);
+            }
+            // Archived posts have no version, and no tag
+            if (etag == null && !postService.postExists(postId)) {
                 throw new RuntimeException("NOT_FOUND: Post not found");
             }
             
-            List<CommentResponse> comments = commentService.getCommentsByPostId(postId);
-            return ResponseEntity.ok(comments);
+            if (Stream.of(after, before, around).filter(Objects::nonNull).count() > 1) {
+                throw new RuntimeException("BAD_REQUEST: Use only one of after, before or around");
+            }
+            
+            Supplier<ResponseBodyCache.Source> page = () -> PageResponses.cacheable(around != null
+                    ? commentService.getCommentsAround(postId, around, limit)
+                            .orElseThrow(() -> new RuntimeException("NOT_FOUND: Comment not found"))
+                    : before != null
+                            ? commentService.getCommentsBefore(postId, before, limit)
+                            : commentService.getCommentsAfter(postId, after, limit));
+            // Every comment change bumps the tag, read above before the page, so it doubles as the page's version.
+            // Archived threads have neither and are paged from the archive's own cache.
+            CachedResponse body = etag != null ? responseBodyCache.get(key, etag, page) : responseBodyCache.render(null, page.get());
+            return HttpCaching.ok(body, etag, request);
         } catch (RuntimeException e) {
-            if (e.getMessage().startsWith("NOT_FOUND")) {
+            if (e.getMessage().startsWith("NOT_FOUND") || e.getMessage().startsWith("BAD_REQUEST")) {
                 throw e;
             }
             log.error("Error retrieving comments for post ID: " + postId, e);
@@ -51,6 +95,42 @@ public class CommentController {
         }
     }
     
+    // The unpaged listing is written to the response row by row, so it never exists in memory as a whole
+    @GetMapping(params = "unpaged=true")
+    @Operation(summary = "List every comment for a post", description = "Retrieve all comments on a specific post, oldest first, "
+            + "as one JSON array. Comments are streamed as they are read from the database.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved comments"),
+            @ApiResponse(responseCode = "304", description = "Comments unchanged since the given ETag"),
+            @ApiResponse(responseCode = "404", description = "Post not found"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public void streamCommentsByPostId(@PathVariable String postId, WebRequest request, HttpServletResponse response) throws IOException {
+        try {
+            // Checked before the first byte, while a 304 or an error status can still be sent
+            String etag = commentService.getCommentsVersion(postId).map(HttpCaching::commentsTag).orElse(null);
+            if (etag != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, HttpCaching.CACHE_CONTROL.getHeaderValue());
+                // The same one ETag on the 304 as on the full response
+                response.setHeader(HttpHeaders.ETAG, etag);
+                if (HttpCaching.isNotModified(request, etag)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return;
+                }
+            } else if (!postService.postExists(postId)) {
+                throw new RuntimeException("NOT_FOUND: Post not found");
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            commentService.writeCommentsByPostId(postId, response.getOutputStream());
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("NOT_FOUND")) {
+                throw e;
+            }
+            log.error("Error streaming comments for post ID: " + postId, e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+    
     @PostMapping
     @Operation(summary = "Create a comment", description = "Add a comment to a post to share your thoughts.")
     @ApiResponses(value = {
@@ -61,7 +141,7 @@ public class CommentController {
     })
     public ResponseEntity<CommentResponse> createComment(@PathVariable String postId, @Valid @RequestBody NewCommentRequest request) {
         try {
-            return commentService.createComment(postId, request)
+            return groupCommitExecutor.execute(postId, () -> commentService.createComment(postId, request))
                     .map(comment -> ResponseEntity.status(HttpStatus.CREATED).body(comment))
                     .orElseThrow(() -> new RuntimeException("NOT_FOUND: Post not found"));
         } catch (RuntimeException e) {
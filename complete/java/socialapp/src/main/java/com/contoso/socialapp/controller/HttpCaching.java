@@ -0,0 +1,176 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.service.ResponseBodyCache.CachedResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+/**
+ * Strong ETags and Cache-Control for resources that clients poll.
+ * <p>
+ * A post's tag is made of its last update and its counters, which together
+ * determine its JSON; a comment listing's tag is the post's comments version,
+ * which every comment change bumps. Both are known before the resource is
+ * serialized, and the comments version before the comments are even read, so
+ * a matching {@code If-None-Match} is answered with an empty 304. Responses
+ * may be reused by a shared cache, such as a reverse proxy, for
+ * {@link #SHARED_MAX_AGE} and must be revalidated by clients every time.
+ * <p>
+ * Bodies from the response body cache are sent gzipped to clients that accept
+ * it. The gzipped bytes differ from the plain ones, so their tag is sent weak,
+ * and a 304 carries the tag of the representation it stands in for.
+ */
+final class HttpCaching {
+    
+    static final Duration SHARED_MAX_AGE = Duration.ofSeconds(2);
+    static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ZERO).sMaxAge(SHARED_MAX_AGE).cachePublic();
+    
+    private HttpCaching() {
+    }
+    
+    static String postTag(PostResponse post) {
+        LocalDateTime updatedAt = post.getUpdatedAt() != null ? post.getUpdatedAt() : post.getCreatedAt();
+        return "\"" + updatedAt.toEpochSecond(ZoneOffset.UTC) + "." + updatedAt.getNano()
+                + "-" + post.getLikesCount() + "-" + post.getCommentsCount() + "\"";
+    }
+    
+    static String commentsTag(long commentsVersion) {
+        return "\"c" + commentsVersion + "\"";
+    }
+    
+    /**
+     * Whether the request's {@code If-None-Match} lists the tag, by the weak
+     * comparison HTTP prescribes for it: a {@code W/} prefix on either side is
+     * ignored, {@code *} matches, and tags may be listed in one header or
+     * several. Only the answer is computed; the caller sends the tag, once, on
+     * whichever response it builds. For GET and HEAD handlers only.
+     */
+    static boolean isNotModified(WebRequest request, String etag) {
+        return lists(request, etag, false);
+    }
+    
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CACHE_CONTROL).build();
+    }
+    
+    /**
+     * The 304 for a body of the response body cache whose tag
+     * {@link #isNotModified} matched, built without loading or rendering the
+     * body. A body still cached tells whether it has a gzipped form;
+     * otherwise the weak tag sent back does, as the tag pins the JSON and so
+     * whether it compresses. The 304 carries the tag and {@code Vary} of the
+     * representation a 200 would have sent.
+     */
+    static ResponseEntity<byte[]> notModified(String etag, Optional<CachedResponse> cached, WebRequest request) {
+        boolean gzipped = cached.map(body -> body.gzip() != null).orElseGet(() -> lists(request, "W/" + etag, true));
+        ResponseEntity.BodyBuilder notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(gzipped && acceptsGzip(request) ? "W/" + etag : etag)
+                .cacheControl(CACHE_CONTROL);
+        if (gzipped) {
+            notModified.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        return notModified.build();
+    }
+    
+    // Responses for which no tag is known are sent without caching headers
+    static ResponseEntity.BodyBuilder ok(String etag) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        return etag == null ? response : response.eTag(etag).cacheControl(CACHE_CONTROL);
+    }
+    
+    /**
+     * Sends a cached body in the representation the request asks for:
+     * gzipped, under the weak tag, when the body has a gzipped form and the
+     * client accepts it, and plain JSON otherwise.
+     */
+    static ResponseEntity<byte[]> ok(CachedResponse cached, String etag, WebRequest request) {
+        boolean gzip = cached.gzip() != null && acceptsGzip(request);
+        String tag = gzip && etag != null ? "W/" + etag : etag;
+        ResponseEntity.BodyBuilder response = ok(tag).contentType(MediaType.APPLICATION_JSON);
+        cached.headers().forEach((name, value) -> response.header(name, value));
+        if (cached.gzip() == null) {
+            return response.body(cached.json());
+        }
+        response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (!gzip) {
+            return response.body(cached.json());
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(cached.gzip());
+    }
+    
+    // weakOnly: only a W/ entry for the tag counts, which tells the form the client holds
+    private static boolean lists(WebRequest request, String etag, boolean weakOnly) {
+        String[] headers = request.getHeaderValues(HttpHeaders.IF_NONE_MATCH);
+        if (headers == null) {
+            return false;
+        }
+        String opaque = opaqueTag(etag);
+        for (String header : headers) {
+            if (listsTag(header, opaque, weakOnly)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // A quoted tag may itself contain commas, so the list is scanned tag by tag rather than split
+    private static boolean listsTag(String header, String opaque, boolean weakOnly) {
+        int at = 0;
+        while (at < header.length()) {
+            char c = header.charAt(at);
+            if (c == ',' || Character.isWhitespace(c)) {
+                at++;
+                continue;
+            }
+            if (c == '*') {
+                return !weakOnly;
+            }
+            boolean weak = header.startsWith("W/", at);
+            if (weak) {
+                at += 2;
+            }
+            // A quoted tag runs to its closing quote; anything else, leniently, to the next comma
+            int end = at < header.length() && header.charAt(at) == '"'
+                    ? header.indexOf('"', at + 1) + 1
+                    : header.indexOf(',', at);
+            if (end <= 0) {
+                end = header.length();
+            }
+            String tag = header.substring(at, end).trim();
+            if ((weak || !weakOnly) && (tag.equals(opaque) || ("\"" + tag + "\"").equals(opaque))) {
+                return true;
+            }
+            at = end;
+        }
+        return false;
+    }
+    
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+    
+    // Accept-Encoding lists codings with optional weights; q=0 refuses one
+    static boolean acceptsGzip(WebRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("(?i)q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -2,6 +2,7 @@ package com.contoso.socialapp.controller;
 
 import com.contoso.socialapp.dto.LikeRequest;
 import com.contoso.socialapp.dto.LikeResponse;
+import com.contoso.socialapp.service.GroupCommitExecutor;
 import com.contoso.socialapp.service.LikeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -22,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 public class LikeController {
     
     private final LikeService likeService;
+    private final GroupCommitExecutor groupCommitExecutor;
     
     @PostMapping
     @Operation(summary = "Like a post", description = "Add a like to a post to show appreciation.")
@@ -33,7 +35,7 @@ public class LikeController {
     })
     public ResponseEntity<LikeResponse> addLike(@PathVariable String postId, @Valid @RequestBody LikeRequest request) {
         try {
-            return likeService.addLike(postId, request)
+            return groupCommitExecutor.execute(postId, () -> likeService.addLike(postId, request))
                     .map(like -> ResponseEntity.status(HttpStatus.CREATED).body(like))
                     .orElseThrow(() -> new RuntimeException("NOT_FOUND: Post not found"));
         } catch (RuntimeException e) {
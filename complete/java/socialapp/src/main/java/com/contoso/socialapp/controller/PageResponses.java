@@ -0,0 +1,45 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.service.ResponseBodyCache;
+import org.springframework.http.ResponseEntity;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a {@link CursorPage} as a plain JSON array, carrying the cursor in a
+ * response header so the body shape matches the unpaged listing.
+ */
+final class PageResponses {
+    
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String PREV_CURSOR_HEADER = "X-Prev-Cursor";
+    
+    private PageResponses() {
+    }
+    
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (page.getPrevCursor() != null) {
+            response.header(PREV_CURSOR_HEADER, page.getPrevCursor());
+        }
+        return response.body(page.getItems());
+    }
+    
+    // The same page, to be rendered once by the response body cache
+    static ResponseBodyCache.Source cacheable(CursorPage<?> page) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (page.getNextCursor() != null) {
+            headers.put(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (page.getPrevCursor() != null) {
+            headers.put(PREV_CURSOR_HEADER, page.getPrevCursor());
+        }
+        return new ResponseBodyCache.Source(page.getItems(), headers);
+    }
+}
@@ -1,18 +1,29 @@
 package com.contoso.socialapp.controller;
 
 import com.contoso.socialapp.dto.*;
+import com.contoso.socialapp.service.GroupCommitExecutor;
 import com.contoso.socialapp.service.PostService;
+import com.contoso.socialapp.service.ResponseBodyCache;
+import com.contoso.socialapp.service.ResponseBodyCache.CachedResponse;
+import com.contoso.socialapp.service.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -23,23 +34,75 @@ import java.util.List;
 public class PostController {
     
     private final PostService postService;
+    private final TrendingService trendingService;
+    private final GroupCommitExecutor groupCommitExecutor;
+    private final ResponseBodyCache responseBodyCache;
     
     @GetMapping
-    @Operation(summary = "List all posts", description = "Retrieve all recent posts to browse what others are sharing.")
+    @Operation(summary = "List posts", description = "Retrieve recent posts, newest first, one page at a time. "
+            + "Pass the X-Next-Cursor response header back as cursor to get the next page, or set unpaged=true to list every post.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts", content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE, array = @ArraySchema(schema = @Schema(implementation = PostResponse.class)))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<PostResponse>> getAllPosts() {
+    public ResponseEntity<byte[]> getAllPosts(@RequestParam(required = false) String cursor,
+                                              @RequestParam(defaultValue = "20") int limit,
+                                              WebRequest request) {
         try {
-            List<PostResponse> posts = postService.getAllPosts();
-            return ResponseEntity.ok(posts);
-        } catch (Exception e) {
+            // Read before the page, so a cached page is never older than the feed version it is kept under
+            String feedVersion = Long.toString(postService.getFeedVersion());
+            CachedResponse page = responseBodyCache.get(ResponseBodyCache.feedPageKey(cursor, limit), feedVersion,
+                    () -> PageResponses.cacheable(postService.getPosts(cursor, limit)));
+            return HttpCaching.ok(page, null, request);
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
             log.error("Error retrieving posts", e);
             throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
         }
     }
     
+    // The unpaged listing is written to the response row by row, so it never exists in memory as a whole
+    @GetMapping(params = "unpaged=true")
+    @Operation(summary = "List every post", description = "Retrieve every post, newest first, as one JSON array. "
+            + "Posts are streamed as they are read from the database.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public void streamAllPosts(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try {
+            postService.writeAllPosts(response.getOutputStream());
+        } catch (RuntimeException e) {
+            log.error("Error streaming posts", e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/trending")
+    @Operation(summary = "List trending posts", description = "Retrieve the posts with the most recent likes and comments, "
+            + "highest first. Recent activity counts for more than older activity, and a comment counts for more than a like.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved trending posts"),
+            @ApiResponse(responseCode = "400", description = "Invalid limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<PostResponse>> getTrendingPosts(@RequestParam(defaultValue = "20") int limit) {
+        try {
+            return ResponseEntity.ok(trendingService.getTrendingPosts(limit));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
+            log.error("Error retrieving trending posts", e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+    
     @PostMapping
     @Operation(summary = "Create a new post", description = "Create a new post to share something with others.")
     @ApiResponses(value = {
@@ -49,7 +112,7 @@ public class PostController {
     })
     public ResponseEntity<PostResponse> createPost(@Valid @RequestBody NewPostRequest request) {
         try {
-            PostResponse post = postService.createPost(request);
+            PostResponse post = groupCommitExecutor.execute(() -> postService.createPost(request));
             return ResponseEntity.status(HttpStatus.CREATED).body(post);
         } catch (Exception e) {
             log.error("Error creating post", e);
@@ -58,16 +121,30 @@ public class PostController {
     }
     
     @GetMapping("/{postId}")
-    @Operation(summary = "Get a specific post", description = "Retrieve a specific post by its ID to read in detail.")
+    @Operation(summary = "Get a specific post", description = "Retrieve a specific post by its ID to read in detail. "
+            + "Send the ETag back in If-None-Match to get an empty 304 while the post, its likes and comments count are unchanged.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Post found"),
+            @ApiResponse(responseCode = "200", description = "Post found", content = @Content(
+                    mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = PostResponse.class))),
+            @ApiResponse(responseCode = "304", description = "Post unchanged since the given ETag"),
             @ApiResponse(responseCode = "404", description = "Post not found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<PostResponse> getPostById(@PathVariable String postId) {
+    public ResponseEntity<byte[]> getPostById(@PathVariable String postId, WebRequest request) {
         try {
+            // Usually served by the post cache, so an unchanged post costs neither a query nor serialization
             return postService.getPostById(postId)
-                    .map(post -> ResponseEntity.ok(post))
+                    .map(post -> {
+                        String etag = HttpCaching.postTag(post);
+                        String key = ResponseBodyCache.postKey(postId);
+                        // Compared weakly, so the plain and the gzipped form's tag both match; the body is not rendered
+                        if (HttpCaching.isNotModified(request, etag)) {
+                            return HttpCaching.notModified(etag, responseBodyCache.peek(key, etag), request);
+                        }
+                        // The tag pins the post's JSON, so it doubles as the cached body's version
+                        CachedResponse body = responseBodyCache.get(key, etag, () -> ResponseBodyCache.Source.of(post));
+                        return HttpCaching.ok(body, etag, request);
+                    })
                     .orElseThrow(() -> new RuntimeException("NOT_FOUND: Post not found"));
         } catch (RuntimeException e) {
             if (e.getMessage().startsWith("NOT_FOUND")) {
@@ -0,0 +1,46 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.dto.SearchResult;
+import com.contoso.socialapp.service.SearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Search", description = "Full-text search over posts and comments")
+public class SearchController {
+    
+    private final SearchService searchService;
+    
+    @GetMapping
+    @Operation(summary = "Search posts and comments", description = "Find posts and comments containing every word of q, "
+            + "most relevant first, one page at a time. The X-Next-Cursor response header holds the cursor for the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved matches"),
+            @ApiResponse(responseCode = "400", description = "Empty query, invalid cursor or limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<SearchResult>> search(@RequestParam String q,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return PageResponses.ok(searchService.search(q, cursor, limit));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
+            log.error("Error searching for: " + q, e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.dto.StatsResponse;
+import com.contoso.socialapp.service.StatsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Stats", description = "Activity statistics")
+public class StatsController {
+    
+    private final StatsService statsService;
+    
+    @GetMapping
+    @Operation(summary = "Get activity statistics", description = "Count the posts, likes and comments created per hour "
+            + "between from and to (ISO date-times, widened to whole hours, at most 31 days apart; by default the last 24 hours), "
+            + "with an estimate of the unique likers per day. Counts may lag a few seconds behind.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved statistics"),
+            @ApiResponse(responseCode = "400", description = "Invalid range"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StatsResponse> getStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(statsService.getStats(from, to));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
+            log.error("Error retrieving stats", e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+}
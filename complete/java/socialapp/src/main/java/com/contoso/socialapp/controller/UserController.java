@@ -0,0 +1,70 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.dto.LikeStatusResponse;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.service.LikeService;
+import com.contoso.socialapp.service.PostService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/users/{username}")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Users", description = "Operations related to a user's activity")
+public class UserController {
+    
+    private final LikeService likeService;
+    private final PostService postService;
+    
+    @GetMapping("/posts")
+    @Operation(summary = "List a user's posts", description = "Retrieve the posts written by a user, newest first, one page at a time. "
+            + "Pass the X-Next-Cursor response header back as cursor to get the next page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or limit"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<PostResponse>> getPostsByUser(@PathVariable String username,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return PageResponses.ok(postService.getPostsByUser(username, cursor, limit));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
+            log.error("Error retrieving posts for user: " + username, e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+    
+    @GetMapping("/likes")
+    @Operation(summary = "Check likes for a page of posts", description = "Find out which of the given posts (up to 100) "
+            + "the user has liked, e.g. to render like buttons for a whole feed page in one call.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved like status"),
+            @ApiResponse(responseCode = "400", description = "Too many post IDs"),
+            @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<LikeStatusResponse> getLikeStatus(@PathVariable String username,
+                                                            @RequestParam List<String> postIds) {
+        try {
+            return ResponseEntity.ok(likeService.getLikeStatus(username, postIds));
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("BAD_REQUEST")) {
+                throw e;
+            }
+            log.error("Error retrieving like status for user: " + username, e);
+            throw new RuntimeException("INTERNAL_SERVER_ERROR: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * How many likes or comments landed on a post within a time window, and when
+ * the first and last of them did; used to rebuild trending scores.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityCount {
+    
+    private String postId;
+    private long count;
+    private LocalDateTime first;
+    private LocalDateTime last;
+}
@@ -0,0 +1,21 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A post as it stood when it was moved to the archive, together with its
+ * comments (oldest first) and likes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedPost {
+    
+    private PostResponse post;
+    private List<CommentResponse> comments;
+    private List<LikeResponse> likes;
+}
@@ -0,0 +1,34 @@
+package com.contoso.socialapp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ * {@code nextCursor} and {@code prevCursor} are null when there is nothing
+ * further in that direction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    
+    public static final int MAX_LIMIT = 100;
+    
+    private List<T> items;
+    private String nextCursor;
+    private String prevCursor;
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this(items, nextCursor, null);
+    }
+    
+    public static void checkLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new RuntimeException("BAD_REQUEST: limit must be between 1 and " + MAX_LIMIT);
+        }
+    }
+}
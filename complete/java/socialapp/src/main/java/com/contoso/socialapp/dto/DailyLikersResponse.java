@@ -0,0 +1,17 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyLikersResponse {
+    
+    private LocalDate day;
+    // Estimated from a HyperLogLog sketch, typically within 2% of the exact count
+    private long uniqueLikers;
+}
@@ -0,0 +1,18 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyActivityResponse {
+    
+    private LocalDateTime hourStart;
+    private long posts;
+    private long likes;
+    private long comments;
+}
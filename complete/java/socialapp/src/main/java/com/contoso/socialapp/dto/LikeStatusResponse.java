@@ -0,0 +1,17 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LikeStatusResponse {
+    
+    private String username;
+    // The subset of the requested post IDs that this user has liked
+    private List<String> likedPostIds;
+}
@@ -1,5 +1,6 @@
 package com.contoso.socialapp.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -18,4 +19,13 @@ public class PostResponse {
     private LocalDateTime updatedAt;
     private int likesCount;
     private int commentsCount;
+    
+    // Orders two copies of the same post's summary; see posts.summary_version. Not part of the API
+    @JsonIgnore
+    private long summaryVersion;
+    
+    public PostResponse(String id, String username, String content, LocalDateTime createdAt, LocalDateTime updatedAt,
+                        int likesCount, int commentsCount) {
+        this(id, username, content, createdAt, updatedAt, likesCount, commentsCount, 0);
+    }
 }
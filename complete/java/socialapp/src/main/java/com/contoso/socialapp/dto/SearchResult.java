@@ -0,0 +1,30 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A post or comment matching a search. {@code commentId} is null for posts;
+ * {@code score} is the BM25 relevance, lower being more relevant.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResult {
+    
+    public enum Type {
+        POST,
+        COMMENT
+    }
+    
+    private Type type;
+    private String postId;
+    private String commentId;
+    private String username;
+    private String content;
+    private LocalDateTime createdAt;
+    private double score;
+}
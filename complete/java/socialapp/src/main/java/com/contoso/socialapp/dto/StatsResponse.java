@@ -0,0 +1,28 @@
+package com.contoso.socialapp.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Activity between two instants, read from the hourly and daily rollups.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsResponse {
+    
+    // Both ends are whole hours; from is inclusive, to exclusive
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long posts;
+    private long likes;
+    private long comments;
+    // Estimated over every day the range touches
+    private long uniqueLikers;
+    private List<HourlyActivityResponse> hours;
+    private List<DailyLikersResponse> days;
+}
@@ -5,8 +5,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 @Entity
 @Table(name = "comments")
@@ -16,8 +18,9 @@ import java.time.LocalDateTime;
 public class Comment {
     
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", type = TimeOrderedIdGenerator.class)
+    @Type(CompactIdType.class)
     private String id;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,13 +41,14 @@ public class Comment {
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // SQLite keeps millisecond timestamps; truncating up front keeps in-memory cursors equal to stored ones
+        createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        updatedAt = createdAt;
     }
     
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
     }
     
     // Helper method to get postId
@@ -0,0 +1,139 @@
+package com.contoso.socialapp.entity;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.config.spi.StandardConverters;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.spi.TypeConfiguration;
+import org.hibernate.type.spi.TypeConfigurationAware;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Maps post and comment IDs, which are UUID strings in Java and in the API, to
+ * their column values.
+ * <p>
+ * With {@code socialapp.storage.binary-ids=true} IDs are written as 16-byte
+ * blobs instead of 36-character strings, which shrinks the primary keys and
+ * every foreign key and index that repeats them. Reads accept either form, and
+ * IDs that are not UUIDs are always kept as text. Existing databases are
+ * converted on startup by {@code IdFormatMigration}.
+ * <p>
+ * The form is read from the {@value #BINARY_SETTING} Hibernate setting when
+ * Hibernate hands each instance its type configuration, so every entity
+ * manager factory follows its own settings.
+ */
+public class CompactIdType implements UserType<String>, TypeConfigurationAware {
+    
+    public static final String BINARY_SETTING = "socialapp.storage.binary-ids";
+    
+    private TypeConfiguration typeConfiguration;
+    private boolean binary;
+    
+    @Override
+    public TypeConfiguration getTypeConfiguration() {
+        return typeConfiguration;
+    }
+    
+    @Override
+    public void setTypeConfiguration(TypeConfiguration typeConfiguration) {
+        this.typeConfiguration = typeConfiguration;
+        this.binary = typeConfiguration.getServiceRegistry().getService(ConfigurationService.class)
+                .getSetting(BINARY_SETTING, StandardConverters.BOOLEAN, false);
+    }
+    
+    /**
+     * The ID for a column value read by plain JDBC, in either stored form.
+     */
+    public static String fromColumn(Object value) {
+        if (value instanceof byte[] bytes && bytes.length == 16) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            return new UUID(buffer.getLong(), buffer.getLong()).toString();
+        }
+        return value == null ? null : value.toString();
+    }
+    
+    @Override
+    public int getSqlType() {
+        return Types.VARCHAR;
+    }
+    
+    @Override
+    public Class<String> returnedClass() {
+        return String.class;
+    }
+    
+    @Override
+    public boolean equals(String x, String y) {
+        return Objects.equals(x, y);
+    }
+    
+    @Override
+    public int hashCode(String x) {
+        return Objects.hashCode(x);
+    }
+    
+    @Override
+    public String nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner) throws SQLException {
+        return fromColumn(rs.getObject(position));
+    }
+    
+    @Override
+    public void nullSafeSet(PreparedStatement st, String value, int index, SharedSessionContractImplementor session) throws SQLException {
+        byte[] bytes = binary && value != null ? toBytes(value) : null;
+        if (value == null) {
+            st.setNull(index, Types.VARCHAR);
+        } else if (bytes != null) {
+            st.setBytes(index, bytes);
+        } else {
+            st.setString(index, value);
+        }
+    }
+    
+    @Override
+    public String deepCopy(String value) {
+        return value;
+    }
+    
+    @Override
+    public boolean isMutable() {
+        return false;
+    }
+    
+    @Override
+    public Serializable disassemble(String value) {
+        return value;
+    }
+    
+    @Override
+    public String assemble(Serializable cached, Object owner) {
+        return (String) cached;
+    }
+    
+    @Override
+    public String replace(String detached, String managed, Object owner) {
+        return detached;
+    }
+    
+    private static byte[] toBytes(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return ByteBuffer.allocate(16)
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits())
+                    .array();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.contoso.socialapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * A HyperLogLog sketch of the users who liked a post on one day.
+ */
+@Entity
+@Table(name = "likers_daily")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyLikers {
+    
+    @Id
+    private LocalDate day;
+    
+    @Column(nullable = false)
+    private byte[] sketch;
+}
@@ -0,0 +1,32 @@
+package com.contoso.socialapp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posts, likes and comments created during one hour.
+ */
+@Entity
+@Table(name = "activity_hourly")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HourlyActivity {
+    
+    @Id
+    @Column(name = "hour_start")
+    private LocalDateTime hourStart;
+    
+    @Column(nullable = false)
+    private long posts;
+    
+    @Column(nullable = false)
+    private long likes;
+    
+    @Column(nullable = false)
+    private long comments;
+}
@@ -4,9 +4,12 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,8 +21,9 @@ import java.util.List;
 public class Post {
     
     @Id
-    @GeneratedValue(generator = "uuid")
-    @GenericGenerator(name = "uuid", strategy = "uuid2")
+    @GeneratedValue(generator = "uuid7")
+    @GenericGenerator(name = "uuid7", type = TimeOrderedIdGenerator.class)
+    @Type(CompactIdType.class)
     private String id;
     
     @Column(nullable = false, length = 50)
@@ -34,29 +38,41 @@ public class Post {
     @Column(name = "updated_at", nullable = false)
     private LocalDateTime updatedAt;
     
-    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    // Denormalized counters, kept up to date by LikeService and CommentService
+    @ColumnDefault("0")
+    @Column(name = "likes_count", nullable = false)
+    private int likesCount;
+    
+    @ColumnDefault("0")
+    @Column(name = "comments_count", nullable = false)
+    private int commentsCount;
+    
+    // Only ever changed by PostRepository's bulk updates, so a post edit cannot write back an older version
+    @ColumnDefault("0")
+    @Column(name = "comments_version", nullable = false, insertable = false, updatable = false)
+    private long commentsVersion;
+    
+    // Likewise only changed by bulk updates, see PostRepository
+    @ColumnDefault("0")
+    @Column(name = "summary_version", nullable = false, insertable = false, updatable = false)
+    private long summaryVersion;
+    
+    // No cascades: PostService.deletePost removes children with bulk deletes instead of loading them
+    @OneToMany(mappedBy = "post", fetch = FetchType.LAZY)
     private List<Comment> comments = new ArrayList<>();
     
-    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
+    @OneToMany(mappedBy = "post", fetch = FetchType.LAZY)
     private List<Like> likes = new ArrayList<>();
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // SQLite keeps millisecond timestamps; truncating up front keeps in-memory cursors equal to stored ones
+        createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        updatedAt = createdAt;
     }
     
     @PreUpdate
     protected void onUpdate() {
-        updatedAt = LocalDateTime.now();
-    }
-    
-    // Helper methods for counts
-    public int getLikesCount() {
-        return likes != null ? likes.size() : 0;
-    }
-    
-    public int getCommentsCount() {
-        return comments != null ? comments.size() : 0;
+        updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
     }
 }
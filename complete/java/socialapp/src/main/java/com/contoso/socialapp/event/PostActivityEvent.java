@@ -0,0 +1,53 @@
+package com.contoso.socialapp.event;
+
+import com.contoso.socialapp.dto.PostResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by the services whenever a post, or a like or comment on it, changes.
+ * Components that keep derived state in memory listen for it after commit.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PostActivityEvent {
+    
+    public enum Type {
+        POST_CREATED,
+        POST_UPDATED,
+        POST_DELETED,
+        POST_ARCHIVED,
+        LIKE_ADDED,
+        LIKE_REMOVED,
+        COMMENT_CREATED,
+        COMMENT_UPDATED,
+        COMMENT_DELETED
+    }
+    
+    private Type type;
+    private String postId;
+    private String username;
+    private LocalDateTime occurredAt;
+    
+    // The post as it stands after the change, counters included; not set for deletions,
+    // archival and comment edits
+    private PostResponse post;
+    
+    public static PostActivityEvent of(Type type, String postId, String username) {
+        return new PostActivityEvent(type, postId, username, LocalDateTime.now(), null);
+    }
+    
+    public static PostActivityEvent forPost(Type type, PostResponse post) {
+        return new PostActivityEvent(type, post.getId(), post.getUsername(), post.getUpdatedAt(), post);
+    }
+    
+    // A like or comment by username on the post, which is passed in as it stands after the change. New likes
+    // and comments occur at the timestamp stored with them, removals when they are made
+    public static PostActivityEvent forActivity(Type type, PostResponse post, String username, LocalDateTime occurredAt) {
+        return new PostActivityEvent(type, post.getId(), username, occurredAt, post);
+    }
+}
@@ -26,6 +26,12 @@ public class GlobalExceptionHandler {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
         }
         
+        if (message != null && message.startsWith("BAD_REQUEST:")) {
+            String errorMessage = message.substring("BAD_REQUEST:".length()).trim();
+            ErrorResponse errorResponse = new ErrorResponse("BAD_REQUEST", errorMessage);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+        }
+        
         if (message != null && message.startsWith("INTERNAL_SERVER_ERROR:")) {
             String errorMessage = message.substring("INTERNAL_SERVER_ERROR:".length()).trim();
             ErrorResponse errorResponse = new ErrorResponse("INTERNAL_SERVER_ERROR", errorMessage);
@@ -1,20 +1,65 @@
 package com.contoso.socialapp.repository;
 
+import com.contoso.socialapp.dto.ActivityCount;
+import com.contoso.socialapp.dto.CommentResponse;
 import com.contoso.socialapp.entity.Comment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, String> {
     
-    @Query("SELECT c FROM Comment c WHERE c.post.id = :postId ORDER BY c.createdAt ASC")
-    List<Comment> findByPostIdOrderByCreatedAtAsc(@Param("postId") String postId);
+    // Read queries select straight into CommentResponse; c.post.id is the foreign key column, so no join
+    String SELECT_COMMENT_RESPONSE = "SELECT new com.contoso.socialapp.dto.CommentResponse("
+            + "c.id, c.post.id, c.username, c.content, c.createdAt, c.updatedAt) FROM Comment c ";
     
+    // A forward-only cursor for streamed listings; it must be consumed, and closed, inside the transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query(SELECT_COMMENT_RESPONSE + "WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    Stream<CommentResponse> streamByPostId(@Param("postId") String postId);
+    
+    // Keyset pages over idx_comments_post_id_created_at_id, oldest first
+    @Query(SELECT_COMMENT_RESPONSE + "WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentResponse> findPageByPostId(@Param("postId") String postId, Pageable pageable);
+    
+    @Query(SELECT_COMMENT_RESPONSE + "WHERE c.post.id = :postId "
+            + "AND c.createdAt >= :createdAt AND (c.createdAt > :createdAt OR c.id > :id) "
+            + "ORDER BY c.createdAt ASC, c.id ASC")
+    List<CommentResponse> findPageByPostIdAfter(@Param("postId") String postId, @Param("createdAt") LocalDateTime createdAt,
+                                                @Param("id") String id, Pageable pageable);
+    
+    // Walks the same index backwards, so callers get the page newest first and reverse it
+    @Query(SELECT_COMMENT_RESPONSE + "WHERE c.post.id = :postId "
+            + "AND c.createdAt <= :createdAt AND (c.createdAt < :createdAt OR c.id < :id) "
+            + "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentResponse> findPageByPostIdBefore(@Param("postId") String postId, @Param("createdAt") LocalDateTime createdAt,
+                                                 @Param("id") String id, Pageable pageable);
+    
+    @Query(SELECT_COMMENT_RESPONSE + "WHERE c.id = :commentId AND c.post.id = :postId")
+    Optional<CommentResponse> findResponseByIdAndPostId(@Param("commentId") String commentId, @Param("postId") String postId);
+    
+    // Trending rebuild: a range of idx_comments_created_at, grouped so that one row comes back per post
+    @Query("SELECT new com.contoso.socialapp.dto.ActivityCount(c.post.id, COUNT(*), MIN(c.createdAt), MAX(c.createdAt)) "
+            + "FROM Comment c WHERE c.createdAt >= :from AND c.createdAt < :until GROUP BY c.post.id")
+    List<ActivityCount> countCommentsBetween(@Param("from") LocalDateTime from, @Param("until") LocalDateTime until);
+    
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.post.id = :postId")
+    int deleteAllByPostId(@Param("postId") String postId);
+    
+    // Loads the managed entity for edits and deletes
     @Query("SELECT c FROM Comment c WHERE c.id = :commentId AND c.post.id = :postId")
     Optional<Comment> findByIdAndPostId(@Param("commentId") String commentId, @Param("postId") String postId);
 }
@@ -0,0 +1,17 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.entity.DailyLikers;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailyLikersRepository extends JpaRepository<DailyLikers, LocalDate> {
+    
+    @Query("SELECT d FROM DailyLikers d WHERE d.day >= :from AND d.day <= :to ORDER BY d.day")
+    List<DailyLikers> findRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
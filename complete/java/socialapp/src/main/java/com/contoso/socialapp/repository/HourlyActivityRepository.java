@@ -0,0 +1,27 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.entity.HourlyActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HourlyActivityRepository extends JpaRepository<HourlyActivity, LocalDateTime> {
+    
+    // Adds to the hour's counters, creating the row on the hour's first flush
+    @Modifying
+    @Query(value = "INSERT INTO activity_hourly (hour_start, posts, likes, comments) VALUES (:hourStart, :posts, :likes, :comments) "
+            + "ON CONFLICT (hour_start) DO UPDATE SET posts = posts + excluded.posts, "
+            + "likes = likes + excluded.likes, comments = comments + excluded.comments",
+            nativeQuery = true)
+    int addCounts(@Param("hourStart") LocalDateTime hourStart, @Param("posts") long posts,
+                  @Param("likes") long likes, @Param("comments") long comments);
+    
+    @Query("SELECT h FROM HourlyActivity h WHERE h.hourStart >= :from AND h.hourStart < :to ORDER BY h.hourStart")
+    List<HourlyActivity> findRange(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -1,12 +1,18 @@
 package com.contoso.socialapp.repository;
 
+import com.contoso.socialapp.dto.ActivityCount;
+import com.contoso.socialapp.dto.LikeResponse;
 import com.contoso.socialapp.entity.Like;
 import com.contoso.socialapp.entity.LikeId;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -15,6 +21,39 @@ public interface LikeRepository extends JpaRepository<Like, LikeId> {
     @Query("SELECT l FROM Like l WHERE l.post.id = :postId AND l.username = :username")
     Optional<Like> findByPostIdAndUsername(@Param("postId") String postId, @Param("username") String username);
     
+    @Query("SELECT new com.contoso.socialapp.dto.LikeResponse(l.post.id, l.username, l.likedAt) "
+            + "FROM Like l WHERE l.post.id = :postId")
+    List<LikeResponse> findResponsesByPostId(@Param("postId") String postId);
+    
+    // Trending rebuild: a range of idx_likes_liked_at, grouped so that one row comes back per post
+    @Query("SELECT new com.contoso.socialapp.dto.ActivityCount(l.post.id, COUNT(*), MIN(l.likedAt), MAX(l.likedAt)) "
+            + "FROM Like l WHERE l.likedAt >= :from AND l.likedAt < :until GROUP BY l.post.id")
+    List<ActivityCount> countLikesBetween(@Param("from") LocalDateTime from, @Param("until") LocalDateTime until);
+    
+    // One probe of idx_likes_username_post_id per requested post
+    @Query("SELECT l.post.id FROM Like l WHERE l.username = :username AND l.post.id IN :postIds")
+    List<String> findLikedPostIds(@Param("username") String username, @Param("postIds") Collection<String> postIds);
+    
+    @Modifying
+    @Query("DELETE FROM Like l WHERE l.post.id = :postId")
+    int deleteAllByPostId(@Param("postId") String postId);
+    
+    /**
+     * Adds the like in one statement if the post exists and the user has not
+     * liked it yet. Returns 1 when a row was inserted and 0 otherwise, so
+     * concurrent duplicate likes cannot race past a separate existence check.
+     * The post ID is copied from the post row, so it is stored in whichever
+     * form, text or binary, the post itself was (see CompactIdType).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO likes (post_id, username, liked_at) "
+            + "SELECT p.id, :username, :likedAt FROM posts p WHERE p.id IN (:postId, unhex(replace(:postId, '-', ''))) "
+            + "ON CONFLICT (post_id, username) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(@Param("postId") String postId, @Param("username") String username,
+                       @Param("likedAt") LocalDateTime likedAt);
+    
+    @Modifying
     @Query("DELETE FROM Like l WHERE l.post.id = :postId AND l.username = :username")
-    void deleteByPostIdAndUsername(@Param("postId") String postId, @Param("username") String username);
+    int deleteByPostIdAndUsername(@Param("postId") String postId, @Param("username") String username);
 }
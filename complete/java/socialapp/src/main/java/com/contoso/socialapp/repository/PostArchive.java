@@ -0,0 +1,204 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.config.SqliteStorageConfig;
+import com.contoso.socialapp.dto.ArchivedPost;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.LikeResponse;
+import com.contoso.socialapp.dto.PostResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.unit.DataSize;
+import org.sqlite.SQLiteConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for old posts, kept in a database file of its own
+ * ({@code socialapp.archive.path}) so that the hot tables and their indexes
+ * only hold recent activity.
+ * <p>
+ * Each archived post is a single row whose payload is the gzip-compressed JSON
+ * of the post, its comments and its likes. Rows are only ever written by the
+ * archival job; the application reads them through a read-only pool, and the
+ * most recently read posts are kept decompressed in memory so that paging
+ * through an archived thread does not inflate it again for every page. That
+ * cache is bounded by the estimated memory of the threads it holds
+ * ({@code cache-max-size}), as one long thread can outweigh thousands of short
+ * ones, and reports as the {@code archive} cache in the actuator metrics, with
+ * the estimated bytes in use as {@code cache.memory}.
+ * <p>
+ * When archiving is disabled and no archive file exists, no file is created
+ * and every lookup misses.
+ */
+@Repository
+@Slf4j
+public class PostArchive implements DisposableBean {
+    
+    // The archive is cold, so it gets a small page cache and no memory map
+    private static final SQLiteConfig PRAGMAS = SqliteStorageConfig.tunedPragmas(0, 2_048, 5_000);
+    // Object headers and timestamps of one post, comment or like, on top of two bytes per character of text
+    private static final long OBJECT_OVERHEAD_BYTES = 160;
+    
+    private final ObjectMapper objectMapper;
+    private final HikariDataSource writer;
+    private final HikariDataSource reader;
+    private final Cache<String, ArchivedPost> recentlyRead;
+    
+    public PostArchive(ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${socialapp.archive.enabled:false}") boolean enabled,
+                       @Value("${socialapp.archive.path:sns_archive.db}") String path,
+                       @Value("${socialapp.archive.cache-max-size:16MB}") DataSize cacheMaxSize) {
+        this.objectMapper = objectMapper;
+        this.recentlyRead = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxSize.toBytes())
+                .weigher((String postId, ArchivedPost archived) -> (int) Math.min(Integer.MAX_VALUE, estimateBytes(archived)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recentlyRead, "archive");
+        Gauge.builder("cache.memory", recentlyRead, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .tag("cache", "archive")
+                .baseUnit("bytes")
+                .description("Estimated memory held by decompressed archived posts")
+                .register(meterRegistry);
+        if (enabled || Files.exists(Path.of(path))) {
+            String url = "jdbc:sqlite:" + path;
+            this.writer = SqliteStorageConfig.sqlitePool("archive-writer", url, 1, false, PRAGMAS);
+            createSchema();
+            this.reader = SqliteStorageConfig.sqlitePool("archive-reader", url, 2, true, PRAGMAS);
+            log.info("Post archive at {}", path);
+        } else {
+            this.writer = null;
+            this.reader = null;
+        }
+    }
+    
+    /**
+     * Writes the posts to the archive and commits, replacing any earlier copy
+     * of the same post.
+     */
+    public void store(List<ArchivedPost> posts) {
+        if (writer == null) {
+            throw new IllegalStateException("Archiving is disabled (socialapp.archive.enabled=false)");
+        }
+        Timestamp archivedAt = Timestamp.valueOf(LocalDateTime.now());
+        try (Connection con = writer.getConnection();
+             PreparedStatement insert = con.prepareStatement("INSERT OR REPLACE INTO archived_posts "
+                     + "(id, username, created_at, archived_at, payload) VALUES (?, ?, ?, ?, ?)")) {
+            con.setAutoCommit(false);
+            for (ArchivedPost archived : posts) {
+                insert.setString(1, archived.getPost().getId());
+                insert.setString(2, archived.getPost().getUsername());
+                insert.setTimestamp(3, Timestamp.valueOf(archived.getPost().getCreatedAt()));
+                insert.setTimestamp(4, archivedAt);
+                insert.setBytes(5, compress(archived));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            con.commit();
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not write " + posts.size() + " posts to the archive", e);
+        }
+    }
+    
+    public Optional<ArchivedPost> find(String postId) {
+        if (reader == null) {
+            return Optional.empty();
+        }
+        ArchivedPost cached = recentlyRead.getIfPresent(postId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        
+        try (Connection con = reader.getConnection();
+             PreparedStatement query = con.prepareStatement("SELECT payload FROM archived_posts WHERE id = ?")) {
+            query.setString(1, postId);
+            try (ResultSet rs = query.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                ArchivedPost archived = decompress(rs.getBytes(1));
+                recentlyRead.put(postId, archived);
+                return Optional.of(archived);
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Could not read post " + postId + " from the archive", e);
+        }
+    }
+    
+    @Override
+    public void destroy() {
+        if (reader != null) {
+            reader.close();
+            writer.close();
+        }
+    }
+    
+    private void createSchema() {
+        try (Connection con = writer.getConnection();
+             Statement statement = con.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS archived_posts ("
+                    + "id VARCHAR(255) NOT NULL PRIMARY KEY, "
+                    + "username VARCHAR(50) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, "
+                    + "archived_at TIMESTAMP NOT NULL, "
+                    + "payload BLOB NOT NULL)");
+        } catch (SQLException e) {
+            writer.close();
+            throw new IllegalStateException("Could not create the archive schema", e);
+        }
+    }
+    
+    static long estimateBytes(ArchivedPost archived) {
+        PostResponse post = archived.getPost();
+        long bytes = OBJECT_OVERHEAD_BYTES + 2L * (post.getId().length() + post.getUsername().length() + post.getContent().length());
+        for (CommentResponse comment : archived.getComments()) {
+            bytes += OBJECT_OVERHEAD_BYTES
+                    + 2L * (comment.getId().length() + comment.getUsername().length() + comment.getContent().length());
+        }
+        for (LikeResponse like : archived.getLikes()) {
+            bytes += OBJECT_OVERHEAD_BYTES + 2L * like.getUsername().length();
+        }
+        return bytes;
+    }
+    
+    private byte[] compress(ArchivedPost archived) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, archived);
+        }
+        return bytes.toByteArray();
+    }
+    
+    private ArchivedPost decompress(byte[] payload) throws IOException {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, ArchivedPost.class);
+        }
+    }
+}
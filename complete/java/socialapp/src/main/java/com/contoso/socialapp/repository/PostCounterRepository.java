@@ -0,0 +1,55 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.entity.CompactIdType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Adjusts a post's denormalized counters and hands back its summary as the
+ * update left it, in one statement, so a like or comment does not need a
+ * second round trip to publish the post as committed. Plain JDBC, as JPA has
+ * no notion of {@code RETURNING}.
+ * <p>
+ * Each update also bumps the summary version, and the comments version when
+ * the comment count changes, like the other updates in {@link PostRepository}.
+ * The post is matched in whichever form, text or binary, its ID is stored
+ * (see CompactIdType).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PostCounterRepository {
+    
+    private static final String WHERE_POST = "WHERE id IN (?, unhex(replace(?, '-', ''))) ";
+    private static final String RETURNING_SUMMARY = "RETURNING id, username, content, created_at, updated_at, "
+            + "likes_count, comments_count, summary_version";
+    
+    static final String ADJUST_LIKES = "UPDATE posts SET likes_count = likes_count + ?, "
+            + "summary_version = summary_version + 1 " + WHERE_POST + RETURNING_SUMMARY;
+    static final String ADJUST_COMMENTS = "UPDATE posts SET comments_count = comments_count + ?, "
+            + "comments_version = comments_version + 1, summary_version = summary_version + 1 " + WHERE_POST + RETURNING_SUMMARY;
+    
+    private static final RowMapper<PostResponse> SUMMARY = (rs, row) -> new PostResponse(
+            CompactIdType.fromColumn(rs.getObject("id")),
+            rs.getString("username"),
+            rs.getString("content"),
+            rs.getTimestamp("created_at").toLocalDateTime(),
+            rs.getTimestamp("updated_at").toLocalDateTime(),
+            rs.getInt("likes_count"),
+            rs.getInt("comments_count"),
+            rs.getLong("summary_version"));
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    public Optional<PostResponse> adjustLikesCount(String postId, int delta) {
+        return jdbcTemplate.query(ADJUST_LIKES, SUMMARY, delta, postId, postId).stream().findFirst();
+    }
+    
+    public Optional<PostResponse> adjustCommentsCount(String postId, int delta) {
+        return jdbcTemplate.query(ADJUST_COMMENTS, SUMMARY, delta, postId, postId).stream().findFirst();
+    }
+}
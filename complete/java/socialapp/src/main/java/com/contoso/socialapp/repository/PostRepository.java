@@ -1,15 +1,93 @@
 package com.contoso.socialapp.repository;
 
+import com.contoso.socialapp.dto.PostResponse;
 import com.contoso.socialapp.entity.Post;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, String> {
     
-    @Query("SELECT p FROM Post p ORDER BY p.createdAt DESC")
-    List<Post> findAllOrderByCreatedAtDesc();
+    /**
+     * Read queries select straight into {@link PostResponse}, counters included,
+     * so no managed entities or dirty-checking snapshots are created for them.
+     */
+    String SELECT_POST_RESPONSE = "SELECT new com.contoso.socialapp.dto.PostResponse("
+            + "p.id, p.username, p.content, p.createdAt, p.updatedAt, p.likesCount, p.commentsCount, p.summaryVersion) FROM Post p ";
+    
+    @Query(SELECT_POST_RESPONSE + "WHERE p.id = :id")
+    Optional<PostResponse> findResponseById(@Param("id") String id);
+    
+    // A forward-only cursor in feed order for streamed listings; it must be consumed, and closed, inside the transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query(SELECT_POST_RESPONSE + "ORDER BY p.createdAt DESC, p.id ASC")
+    Stream<PostResponse> streamAll();
+    
+    // Keyset pages over idx_posts_created_at_id; the ordering must match the index
+    @Query(SELECT_POST_RESPONSE + "ORDER BY p.createdAt DESC, p.id ASC")
+    List<PostResponse> findFeedPage(Pageable pageable);
+    
+    // The leading range term lets SQLite seek straight to the cursor instead of filtering from the top
+    @Query(SELECT_POST_RESPONSE + "WHERE p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id > :id) "
+            + "ORDER BY p.createdAt DESC, p.id ASC")
+    List<PostResponse> findFeedPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") String id, Pageable pageable);
+    
+    // Per-user keyset pages over idx_posts_username_created_at_id, in the same order as the feed
+    @Query(SELECT_POST_RESPONSE + "WHERE p.username = :username ORDER BY p.createdAt DESC, p.id ASC")
+    List<PostResponse> findPageByUsername(@Param("username") String username, Pageable pageable);
+    
+    @Query(SELECT_POST_RESPONSE + "WHERE p.username = :username "
+            + "AND p.createdAt <= :createdAt AND (p.createdAt < :createdAt OR p.id > :id) "
+            + "ORDER BY p.createdAt DESC, p.id ASC")
+    List<PostResponse> findPageByUsernameAfter(@Param("username") String username, @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") String id, Pageable pageable);
+    
+    // Oldest first for the archival job; the exact reverse of the index order, so SQLite walks it backwards
+    @Query(SELECT_POST_RESPONSE + "WHERE p.createdAt < :cutoff ORDER BY p.createdAt ASC, p.id DESC")
+    List<PostResponse> findCreatedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM Post p WHERE p.id = :postId")
+    int deletePostById(@Param("postId") String postId);
+    
+    // Every update of what a summary shows also bumps its summary version; counters are
+    // adjusted through PostCounterRepository, which returns the summary in the same statement
+    @Modifying
+    @Query("UPDATE Post p SET p.content = :content, p.updatedAt = :updatedAt, p.summaryVersion = p.summaryVersion + 1 "
+            + "WHERE p.id = :postId AND p.username = :username")
+    int updateContent(@Param("postId") String postId, @Param("username") String username,
+                      @Param("content") String content, @Param("updatedAt") LocalDateTime updatedAt);
+    
+    @Modifying
+    @Query("UPDATE Post p SET p.commentsVersion = p.commentsVersion + 1 WHERE p.id = :postId")
+    int bumpCommentsVersion(@Param("postId") String postId);
+    
+    @Query("SELECT p.commentsVersion FROM Post p WHERE p.id = :postId")
+    Optional<Long> findCommentsVersion(@Param("postId") String postId);
+    
+    /**
+     * Recomputes the denormalized counters from the likes and comments tables,
+     * touching only the posts whose stored values have drifted.
+     */
+    @Modifying
+    @Query(value = "UPDATE posts SET "
+            + "likes_count = (SELECT COUNT(*) FROM likes l WHERE l.post_id = posts.id), "
+            + "comments_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = posts.id), "
+            + "summary_version = summary_version + 1 "
+            + "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.post_id = posts.id) "
+            + "OR comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = posts.id)",
+            nativeQuery = true)
+    int reconcileCounters();
 }
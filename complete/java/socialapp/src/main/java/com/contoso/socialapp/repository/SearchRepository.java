@@ -0,0 +1,48 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.dto.SearchResult;
+import com.contoso.socialapp.entity.CompactIdType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Queries the FTS5 index that migration V5 keeps in step with post and comment
+ * content. Plain JDBC, as JPA has no notion of {@code MATCH} or BM25 ranking.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SearchRepository {
+    
+    // FTS5 ranks and limits inside the virtual table; the joins then only touch the rows returned
+    private static final String SEARCH = "SELECT d.kind, d.doc_id, c.post_id, "
+            + "coalesce(p.username, c.username) AS username, coalesce(p.content, c.content) AS content, "
+            + "coalesce(p.created_at, c.created_at) AS created_at, hits.rank "
+            + "FROM (SELECT rowid, rank FROM search_index WHERE search_index MATCH ? ORDER BY rank LIMIT ? OFFSET ?) hits "
+            + "JOIN search_docs d ON d.id = hits.rowid "
+            + "LEFT JOIN posts p ON d.kind = 'post' AND p.id = d.doc_id "
+            + "LEFT JOIN comments c ON d.kind = 'comment' AND c.id = d.doc_id "
+            + "ORDER BY hits.rank";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    /**
+     * Returns matches for an FTS5 query expression, most relevant first.
+     */
+    public List<SearchResult> search(String matchExpression, int limit, int offset) {
+        return jdbcTemplate.query(SEARCH, (rs, row) -> {
+            boolean post = "post".equals(rs.getString("kind"));
+            String docId = CompactIdType.fromColumn(rs.getObject("doc_id"));
+            return new SearchResult(
+                    post ? SearchResult.Type.POST : SearchResult.Type.COMMENT,
+                    post ? docId : CompactIdType.fromColumn(rs.getObject("post_id")),
+                    post ? null : docId,
+                    rs.getString("username"),
+                    rs.getString("content"),
+                    rs.getTimestamp("created_at").toLocalDateTime(),
+                    rs.getDouble("rank"));
+        }, matchExpression, limit, offset);
+    }
+}
@@ -0,0 +1,179 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.entity.DailyLikers;
+import com.contoso.socialapp.entity.HourlyActivity;
+import com.contoso.socialapp.event.PostActivityEvent;
+import com.contoso.socialapp.repository.DailyLikersRepository;
+import com.contoso.socialapp.repository.HourlyActivityRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Folds committed post, like and comment creations into hourly counters and
+ * daily sketches of unique likers.
+ * <p>
+ * Events are added to in-memory buckets as they commit and the buckets are
+ * added to the rollup tables every {@code socialapp.stats.flush-interval} and
+ * at shutdown, in one short transaction, so the write path gains no
+ * statements. Reads combine the stored rollups with the buckets not yet
+ * flushed; flushes wait for reads, so nothing is counted twice or missed. A
+ * crash loses at most one interval of statistics, never any posts,
+ * likes or comments. Deletions are not subtracted: the rollups count activity.
+ * With sharded storage the rollups live on shard 0.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivityRollups {
+    
+    static final int POSTS = 0;
+    static final int LIKES = 1;
+    static final int COMMENTS = 2;
+    
+    private final HourlyActivityRepository hourlyActivityRepository;
+    private final DailyLikersRepository dailyLikersRepository;
+    private final ShardRouter shardRouter;
+    
+    // Held for a whole flush or read; the buckets themselves are guarded by this
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    private Map<LocalDateTime, long[]> pendingHours = new HashMap<>();
+    private Map<LocalDate, HyperLogLog> pendingLikers = new HashMap<>();
+    
+    @TransactionalEventListener
+    public synchronized void onPostActivity(PostActivityEvent event) {
+        LocalDateTime at = event.getOccurredAt();
+        switch (event.getType()) {
+            case POST_CREATED -> count(at, POSTS);
+            case LIKE_ADDED -> {
+                count(at, LIKES);
+                pendingLikers.computeIfAbsent(at.toLocalDate(), day -> new HyperLogLog()).add(event.getUsername());
+            }
+            case COMMENT_CREATED -> count(at, COMMENTS);
+            default -> {
+                // Only creations are counted
+            }
+        }
+    }
+    
+    @Scheduled(initialDelayString = "${socialapp.stats.flush-interval}", fixedDelayString = "${socialapp.stats.flush-interval}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    /**
+     * Hourly counters for the hours in [from, to) and sketches for the days they
+     * touch, stored and pending combined. Counters are posts, likes and comments.
+     */
+    public Snapshot read(LocalDateTime from, LocalDateTime to) {
+        LocalDate firstDay = from.toLocalDate();
+        LocalDate lastDay = to.minusNanos(1).toLocalDate();
+        flushLock.lock();
+        try {
+            Snapshot snapshot = pendingSnapshot(from, to, firstDay, lastDay);
+            List<HourlyActivity> hours = shardRouter.read(0, () -> hourlyActivityRepository.findRange(from, to));
+            List<DailyLikers> days = shardRouter.read(0, () -> dailyLikersRepository.findRange(firstDay, lastDay));
+            for (HourlyActivity hour : hours) {
+                long[] counts = snapshot.hours().computeIfAbsent(hour.getHourStart(), h -> new long[3]);
+                counts[POSTS] += hour.getPosts();
+                counts[LIKES] += hour.getLikes();
+                counts[COMMENTS] += hour.getComments();
+            }
+            for (DailyLikers day : days) {
+                snapshot.likers().merge(day.getDay(), HyperLogLog.fromBytes(day.getSketch()), ActivityRollups::union);
+            }
+            return snapshot;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    private void flushPending() {
+        Map<LocalDateTime, long[]> hours;
+        Map<LocalDate, HyperLogLog> likers;
+        synchronized (this) {
+            if (pendingHours.isEmpty() && pendingLikers.isEmpty()) {
+                return;
+            }
+            hours = pendingHours;
+            likers = pendingLikers;
+            pendingHours = new HashMap<>();
+            pendingLikers = new HashMap<>();
+        }
+        
+        try {
+            shardRouter.write(0, () -> {
+                hours.forEach((hour, counts) -> hourlyActivityRepository.addCounts(hour, counts[POSTS], counts[LIKES], counts[COMMENTS]));
+                likers.forEach((day, sketch) -> {
+                    HyperLogLog merged = dailyLikersRepository.findById(day)
+                            .map(stored -> HyperLogLog.fromBytes(stored.getSketch()))
+                            .orElseGet(HyperLogLog::new);
+                    merged.merge(sketch);
+                    dailyLikersRepository.save(new DailyLikers(day, merged.toBytes()));
+                });
+                return null;
+            });
+            log.debug("Flushed {} hourly and {} daily rollups", hours.size(), likers.size());
+        } catch (RuntimeException e) {
+            // Keep the buckets for the next attempt
+            requeue(hours, likers);
+            log.warn("Could not flush activity rollups; will retry", e);
+        }
+    }
+    
+    private synchronized Snapshot pendingSnapshot(LocalDateTime from, LocalDateTime to, LocalDate firstDay, LocalDate lastDay) {
+        Snapshot snapshot = new Snapshot(new TreeMap<>(), new TreeMap<>());
+        pendingHours.forEach((hour, counts) -> {
+            if (!hour.isBefore(from) && hour.isBefore(to)) {
+                snapshot.hours().put(hour, counts.clone());
+            }
+        });
+        pendingLikers.forEach((day, sketch) -> {
+            if (!day.isBefore(firstDay) && !day.isAfter(lastDay)) {
+                snapshot.likers().put(day, HyperLogLog.fromBytes(sketch.toBytes()));
+            }
+        });
+        return snapshot;
+    }
+    
+    private void count(LocalDateTime at, int counter) {
+        pendingHours.computeIfAbsent(at.truncatedTo(ChronoUnit.HOURS), hour -> new long[3])[counter]++;
+    }
+    
+    private synchronized void requeue(Map<LocalDateTime, long[]> hours, Map<LocalDate, HyperLogLog> likers) {
+        hours.forEach((hour, counts) -> {
+            long[] pending = pendingHours.computeIfAbsent(hour, h -> new long[3]);
+            for (int i = 0; i < counts.length; i++) {
+                pending[i] += counts[i];
+            }
+        });
+        likers.forEach((day, sketch) -> pendingLikers.merge(day, sketch, ActivityRollups::union));
+    }
+    
+    private static HyperLogLog union(HyperLogLog into, HyperLogLog other) {
+        into.merge(other);
+        return into;
+    }
+    
+    public record Snapshot(Map<LocalDateTime, long[]> hours, Map<LocalDate, HyperLogLog> likers) {
+    }
+}
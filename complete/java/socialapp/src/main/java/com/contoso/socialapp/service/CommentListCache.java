@@ -0,0 +1,142 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.CommentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Cache of whole comment lists, in front of {@link CommentService#writeCommentsByPostId}.
+ * <p>
+ * Entries are keyed by post ID and tagged with the post's comments version,
+ * which every comment create, edit and delete bumps in the same transaction as
+ * the change. A reader looks the version up first and only uses an entry with
+ * exactly that version, so a cached list can never be older than what the
+ * database would return. Lists are held as serialized JSON, so the memory
+ * bound ({@code max-size}) is measured rather than estimated. Statistics are
+ * published as the {@code comments} cache in the actuator metrics, with the
+ * bytes in use as {@code cache.memory}.
+ * <p>
+ * A cached list's bytes are sent as they are, and a miss keeps a copy of what
+ * it streams only while it stays within {@code max-entry-size}, so streaming a
+ * huge thread never buffers it.
+ */
+@Component
+public class CommentListCache {
+    
+    // Key, entry and array headers on top of the serialized bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    
+    private final ObjectMapper objectMapper;
+    private final long maxEntrySize;
+    private final Cache<String, VersionedComments> cache;
+    
+    public CommentListCache(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${socialapp.cache.comments.max-size:32MB}") DataSize maxSize,
+                            @Value("${socialapp.cache.comments.max-entry-size:1MB}") DataSize maxEntrySize) {
+        this.objectMapper = objectMapper;
+        this.maxEntrySize = maxEntrySize.toBytes();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String postId, VersionedComments entry) -> ENTRY_OVERHEAD_BYTES + 2 * postId.length() + entry.json().length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "comments");
+        Gauge.builder("cache.memory", cache, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .tag("cache", "comments")
+                .baseUnit("bytes")
+                .description("Estimated memory held by cached comment lists")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Writes the post's comments as of {@code version} to {@code out} as a JSON
+     * array. On a miss the loader's rows are serialized one at a time as they
+     * are read. The caller must read the version and, on a miss, the comments
+     * in the same transaction.
+     */
+    public void write(String postId, long version, Supplier<Stream<CommentResponse>> loader, OutputStream out) {
+        VersionedComments cached = cache.getIfPresent(postId);
+        if (cached != null && cached.version() == version) {
+            try {
+                out.write(cached.json());
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        CappedCopy copy = new CappedCopy(out, maxEntrySize);
+        try (Stream<CommentResponse> comments = loader.get()) {
+            JsonArrayWriter writer = JsonArrayWriter.start(objectMapper, copy);
+            comments.forEach(writer::write);
+            writer.finish();
+        }
+        byte[] json = copy.copied();
+        if (json != null) {
+            put(postId, new VersionedComments(version, json));
+        }
+    }
+    
+    // A reader that raced with a newer one must not replace the newer list
+    private void put(String postId, VersionedComments loaded) {
+        cache.asMap().merge(postId, loaded, (current, candidate) -> current.version() > candidate.version() ? current : candidate);
+    }
+    
+    private record VersionedComments(long version, byte[] json) {
+    }
+    
+    // Passes everything through, keeping a copy until it outgrows the limit
+    private static final class CappedCopy extends FilterOutputStream {
+        
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        
+        CappedCopy(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            keep(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            keep(b, off, len);
+        }
+        
+        byte[] copied() {
+            return copy == null ? null : copy.toByteArray();
+        }
+        
+        private void keep(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            if (copy.size() + len > limit) {
+                copy = null;
+                return;
+            }
+            copy.write(b, off, len);
+        }
+    }
+}
@@ -3,17 +3,33 @@ package com.contoso.socialapp.service;
 import com.contoso.socialapp.dto.*;
 import com.contoso.socialapp.entity.Comment;
 import com.contoso.socialapp.entity.Post;
+import com.contoso.socialapp.event.PostActivityEvent;
 import com.contoso.socialapp.repository.CommentRepository;
+import com.contoso.socialapp.repository.PostArchive;
+import com.contoso.socialapp.repository.PostCounterRepository;
 import com.contoso.socialapp.repository.PostRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
+/**
+ * Comments of archived posts are read from the {@link PostArchive}, so reads
+ * stay transparent while archived threads stay read-only. The archive is only
+ * consulted when the hot tables return nothing and the post itself is no
+ * longer live, so the end of a live thread never reaches it.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -22,17 +38,113 @@ public class CommentService {
     
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
+    private final PostCounterRepository postCounterRepository;
+    private final PostArchive postArchive;
+    private final CommentListCache commentListCache;
+    private final ResponseBodyCache responseBodyCache;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
     
-    public List<CommentResponse> getCommentsByPostId(String postId) {
-        log.info("Retrieving comments for post ID: {}", postId);
-        return commentRepository.findByPostIdOrderByCreatedAtAsc(postId)
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    /**
+     * The post's comments version, which every comment change bumps; empty for
+     * archived and unknown posts.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Long> getCommentsVersion(String postId) {
+        shardRouter.bindTo(postId);
+        return postRepository.findCommentsVersion(postId);
+    }
+    
+    /**
+     * Writes all of the post's comments, oldest first, to {@code out} as one
+     * JSON array: from the comment list cache when it holds the current
+     * version, otherwise straight from a database cursor.
+     */
+    @Transactional(readOnly = true)
+    public void writeCommentsByPostId(String postId, OutputStream out) {
+        log.info("Streaming comments for post ID: {}", postId);
+        shardRouter.bindTo(postId);
+        Optional<Long> version = postRepository.findCommentsVersion(postId);
+        if (version.isEmpty()) {
+            // Archived threads are already in memory, in the archive's cache
+            JsonArrayWriter writer = JsonArrayWriter.start(objectMapper, out);
+            archivedComments(postId).forEach(writer::write);
+            writer.finish();
+            return;
+        }
+        commentListCache.write(postId, version.get(), () -> commentRepository.streamByPostId(postId), out);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getCommentsAfter(String postId, String cursor, int limit) {
+        log.info("Retrieving comments page for post ID: {} with limit: {}", postId, limit);
+        shardRouter.bindTo(postId);
+        CursorPage.checkLimit(limit);
+        
+        // Fetch one extra row to learn whether another page follows
+        boolean first = cursor == null || cursor.isEmpty();
+        List<CommentResponse> items = first
+                ? findFirst(postId, limit + 1)
+                : findAfter(postId, PageCursor.decode(cursor), limit + 1);
+        boolean hasMore = items.size() > limit;
+        items = items.subList(0, Math.min(limit, items.size()));
+        
+        String nextCursor = hasMore ? cursorOf(items.get(items.size() - 1)) : null;
+        String prevCursor = !first && !items.isEmpty() ? cursorOf(items.get(0)) : null;
+        return new CursorPage<>(items, nextCursor, prevCursor);
+    }
+    
+    @Transactional(readOnly = true)
+    public CursorPage<CommentResponse> getCommentsBefore(String postId, String cursor, int limit) {
+        log.info("Retrieving comments page before cursor for post ID: {} with limit: {}", postId, limit);
+        shardRouter.bindTo(postId);
+        CursorPage.checkLimit(limit);
+        
+        List<CommentResponse> items = findBefore(postId, PageCursor.decode(cursor), limit + 1);
+        boolean hasMore = items.size() > limit;
+        items = items.subList(Math.max(0, items.size() - limit), items.size());
+        
+        String prevCursor = hasMore ? cursorOf(items.get(0)) : null;
+        String nextCursor = items.isEmpty() ? null : cursorOf(items.get(items.size() - 1));
+        return new CursorPage<>(items, nextCursor, prevCursor);
+    }
+    
+    /**
+     * Returns a window of up to {@code limit} comments centred on the given
+     * comment, e.g. to open a deep link into a long thread.
+     */
+    @Transactional(readOnly = true)
+    public Optional<CursorPage<CommentResponse>> getCommentsAround(String postId, String commentId, int limit) {
+        log.info("Retrieving comments around comment ID: {} for post ID: {} with limit: {}", commentId, postId, limit);
+        shardRouter.bindTo(postId);
+        CursorPage.checkLimit(limit);
+        
+        return findComment(postId, commentId)
+                .map(anchor -> {
+                    PageCursor anchorCursor = new PageCursor(anchor.getCreatedAt(), anchor.getId());
+                    int olderCount = (limit - 1) / 2;
+                    int newerCount = limit - 1 - olderCount;
+                    
+                    List<CommentResponse> older = findBefore(postId, anchorCursor, olderCount + 1);
+                    List<CommentResponse> newer = findAfter(postId, anchorCursor, newerCount + 1);
+                    boolean hasOlder = older.size() > olderCount;
+                    boolean hasNewer = newer.size() > newerCount;
+                    
+                    List<CommentResponse> items = new ArrayList<>(limit);
+                    items.addAll(older.subList(older.size() - Math.min(olderCount, older.size()), older.size()));
+                    items.add(anchor);
+                    items.addAll(newer.subList(0, Math.min(newerCount, newer.size())));
+                    
+                    String prevCursor = hasOlder ? cursorOf(items.get(0)) : null;
+                    String nextCursor = hasNewer ? cursorOf(items.get(items.size() - 1)) : null;
+                    return new CursorPage<>(items, nextCursor, prevCursor);
+                });
     }
     
     public Optional<CommentResponse> createComment(String postId, NewCommentRequest request) {
         log.info("Creating new comment for post ID: {} by user: {}", postId, request.getUsername());
+        shardRouter.bindTo(postId);
         
         return postRepository.findById(postId)
                 .map(post -> {
@@ -42,26 +154,32 @@ public class CommentService {
                     comment.setContent(request.getContent());
                     
                     Comment savedComment = commentRepository.save(comment);
+                    adjustCountAndPublish(PostActivityEvent.Type.COMMENT_CREATED, postId, request.getUsername(), savedComment.getCreatedAt(), 1);
+                    responseBodyCache.evictPost(postId);
                     log.info("Created comment with ID: {} for post ID: {}", savedComment.getId(), postId);
                     
                     return convertToResponse(savedComment);
                 });
     }
     
+    @Transactional(readOnly = true)
     public Optional<CommentResponse> getCommentById(String postId, String commentId) {
         log.info("Retrieving comment with ID: {} for post ID: {}", commentId, postId);
-        return commentRepository.findByIdAndPostId(commentId, postId)
-                .map(this::convertToResponse);
+        shardRouter.bindTo(postId);
+        return findComment(postId, commentId);
     }
     
     public Optional<CommentResponse> updateComment(String postId, String commentId, UpdateCommentRequest request) {
         log.info("Updating comment with ID: {} for post ID: {} by user: {}", commentId, postId, request.getUsername());
+        shardRouter.bindTo(postId);
         
         return commentRepository.findByIdAndPostId(commentId, postId)
                 .filter(comment -> comment.getUsername().equals(request.getUsername()))
                 .map(comment -> {
                     comment.setContent(request.getContent());
                     Comment savedComment = commentRepository.save(comment);
+                    postRepository.bumpCommentsVersion(postId);
+                    eventPublisher.publishEvent(PostActivityEvent.of(PostActivityEvent.Type.COMMENT_UPDATED, postId, request.getUsername()));
                     log.info("Updated comment with ID: {} for post ID: {}", savedComment.getId(), postId);
                     return convertToResponse(savedComment);
                 });
@@ -69,10 +187,13 @@ public class CommentService {
     
     public boolean deleteComment(String postId, String commentId) {
         log.info("Deleting comment with ID: {} for post ID: {}", commentId, postId);
+        shardRouter.bindTo(postId);
         
         Optional<Comment> comment = commentRepository.findByIdAndPostId(commentId, postId);
         if (comment.isPresent()) {
             commentRepository.delete(comment.get());
+            adjustCountAndPublish(PostActivityEvent.Type.COMMENT_DELETED, postId, comment.get().getUsername(), LocalDateTime.now(), -1);
+            responseBodyCache.evictPost(postId);
             log.info("Deleted comment with ID: {} for post ID: {}", commentId, postId);
             return true;
         }
@@ -81,6 +202,69 @@ public class CommentService {
         return false;
     }
     
+    private Optional<CommentResponse> findComment(String postId, String commentId) {
+        return commentRepository.findResponseByIdAndPostId(commentId, postId)
+                .or(() -> !isLive(postId)
+                        ? archivedComments(postId).stream()
+                                .filter(comment -> comment.getId().equals(commentId))
+                                .findFirst()
+                        : Optional.empty());
+    }
+    
+    private List<CommentResponse> findFirst(String postId, int count) {
+        List<CommentResponse> items = new ArrayList<>(commentRepository.findPageByPostId(postId, PageRequest.ofSize(count)));
+        return items.isEmpty() && !isLive(postId) ? archivedSlice(postId, comment -> true, count, false) : items;
+    }
+    
+    private List<CommentResponse> findAfter(String postId, PageCursor after, int count) {
+        List<CommentResponse> items = new ArrayList<>(commentRepository.findPageByPostIdAfter(
+                postId, after.getCreatedAt(), after.getId(), PageRequest.ofSize(count)));
+        return items.isEmpty() && !isLive(postId) ? archivedSlice(postId, comment -> compare(comment, after) > 0, count, false) : items;
+    }
+    
+    // Returned oldest first, like every other comment listing
+    private List<CommentResponse> findBefore(String postId, PageCursor before, int count) {
+        List<CommentResponse> items = new ArrayList<>(commentRepository.findPageByPostIdBefore(
+                postId, before.getCreatedAt(), before.getId(), PageRequest.ofSize(count)));
+        if (items.isEmpty()) {
+            return !isLive(postId) ? archivedSlice(postId, comment -> compare(comment, before) < 0, count, true) : items;
+        }
+        Collections.reverse(items);
+        return items;
+    }
+    
+    // Asked only when a page comes back empty: one primary key probe keeps the end of a live thread out of the archive
+    private boolean isLive(String postId) {
+        return postRepository.findCommentsVersion(postId).isPresent();
+    }
+    
+    private List<CommentResponse> archivedComments(String postId) {
+        return postArchive.find(postId).map(ArchivedPost::getComments).orElse(List.of());
+    }
+    
+    // Archived comments are stored in (createdAt, id) order, so a page is a contiguous run of them
+    private List<CommentResponse> archivedSlice(String postId, Predicate<CommentResponse> inRange, int count, boolean fromEnd) {
+        List<CommentResponse> matching = archivedComments(postId).stream().filter(inRange).toList();
+        return new ArrayList<>(fromEnd
+                ? matching.subList(Math.max(0, matching.size() - count), matching.size())
+                : matching.subList(0, Math.min(count, matching.size())));
+    }
+    
+    private static int compare(CommentResponse comment, PageCursor cursor) {
+        int byTime = comment.getCreatedAt().compareTo(cursor.getCreatedAt());
+        return byTime != 0 ? byTime : comment.getId().compareTo(cursor.getId());
+    }
+    
+    private String cursorOf(CommentResponse comment) {
+        return new PageCursor(comment.getCreatedAt(), comment.getId()).encode();
+    }
+    
+    // The counter update returns the post as it leaves it, so the event carries the counters exactly as committed
+    private void adjustCountAndPublish(PostActivityEvent.Type type, String postId, String username, LocalDateTime at, int delta) {
+        PostResponse post = postCounterRepository.adjustCommentsCount(postId, delta).orElseThrow();
+        eventPublisher.publishEvent(PostActivityEvent.forActivity(type, post, username, at));
+    }
+    
     private CommentResponse convertToResponse(Comment comment) {
         return new CommentResponse(
                 comment.getId(),
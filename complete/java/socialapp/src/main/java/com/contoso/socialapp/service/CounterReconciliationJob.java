@@ -0,0 +1,34 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically repairs drift between the denormalized like/comment counters on
+ * posts and the rows they summarize.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CounterReconciliationJob {
+    
+    private final PostRepository postRepository;
+    private final ShardRouter shardRouter;
+    
+    @Scheduled(initialDelayString = "${socialapp.counters.reconcile-initial-delay:PT10S}",
+            fixedDelayString = "${socialapp.counters.reconcile-interval:PT1H}")
+    public void reconcile() {
+        int repaired = shardRouter.writeEachShard(postRepository::reconcileCounters)
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+        if (repaired > 0) {
+            log.warn("Repaired like/comment counters on {} posts", repaired);
+        } else {
+            log.debug("Like/comment counters are consistent");
+        }
+    }
+}
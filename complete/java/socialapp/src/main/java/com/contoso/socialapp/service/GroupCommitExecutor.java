@@ -0,0 +1,280 @@
+package com.contoso.socialapp.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Optional group-commit pipeline for write requests.
+ * <p>
+ * When enabled, callers hand their write to a single writer thread, which runs
+ * queued writes back to back in one transaction and commits once per batch, so
+ * SQLite syncs once per batch rather than once per request. A batch closes when
+ * it holds {@code max-batch-size} writes or {@code max-wait} has passed since its
+ * first write. Every caller still blocks for its own result or exception: if any
+ * write in a batch fails, the batch is rolled back and each write is replayed in
+ * a transaction of its own, so one bad request cannot fail its neighbours.
+ * <p>
+ * With sharded storage there is one writer thread per shard, and writes that
+ * name their post with {@link #execute(String, Supplier)} are batched on that
+ * post's shard. New posts only learn their shard once their ID is generated, so
+ * in that mode {@link #execute(Supplier)} runs them on the calling thread.
+ * <p>
+ * Callers wait at most {@code timeout} for their result. A writer thread that
+ * stops, whether at shutdown or because it died, fails the writes still queued
+ * for it, and later writes for its shard are rejected rather than left waiting.
+ * <p>
+ * When disabled, {@link #execute} just runs the write on the calling thread.
+ */
+@Component
+@Slf4j
+public class GroupCommitExecutor {
+    
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final Duration timeout;
+    private final List<Lane> lanes = new ArrayList<>();
+    
+    private volatile boolean running;
+    
+    public GroupCommitExecutor(PlatformTransactionManager transactionManager,
+                               ShardRouter shardRouter,
+                               @Value("${socialapp.write.group-commit.enabled:false}") boolean enabled,
+                               @Value("${socialapp.write.group-commit.max-batch-size:64}") int maxBatchSize,
+                               @Value("${socialapp.write.group-commit.max-wait:5ms}") Duration maxWait,
+                               @Value("${socialapp.write.group-commit.timeout:PT30S}") Duration timeout) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.timeout = timeout;
+    }
+    
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            Lane lane = new Lane(shard);
+            lanes.add(lane);
+            lane.writer.start();
+        }
+        log.info("Group commit enabled with batches of up to {} writes within {} on {} writer thread(s)",
+                maxBatchSize, maxWait, lanes.size());
+    }
+    
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Lane lane : lanes) {
+            lane.writer.join();
+        }
+    }
+    
+    /**
+     * Runs a write, possibly batched with concurrent ones, and returns its result
+     * once the transaction holding it has committed.
+     */
+    public <T> T execute(Supplier<T> write) {
+        if (shardRouter.isSharded()) {
+            return write.get();
+        }
+        return submit(0, write);
+    }
+    
+    /**
+     * Like {@link #execute(Supplier)}, for a write that touches only the given
+     * post and therefore only its shard.
+     */
+    public <T> T execute(String postId, Supplier<T> write) {
+        return submit(shardRouter.shardOf(postId), write);
+    }
+    
+    private <T> T submit(int shard, Supplier<T> write) {
+        // Writes issued from a writer thread itself cannot be queued behind their own batch
+        if (!enabled || isWriterThread()) {
+            return write.get();
+        }
+        
+        Lane lane = lanes.get(shard);
+        if (!running || lane.stopped) {
+            throw new IllegalStateException("Group commit writer for shard " + shard + " has stopped");
+        }
+        PendingWrite<T> pending = new PendingWrite<>(write);
+        lane.queue.add(pending);
+        // The writer may have stopped, and drained its queue, just before the write was added
+        if (lane.stopped && lane.queue.remove(pending)) {
+            throw new IllegalStateException("Group commit writer for shard " + shard + " has stopped");
+        }
+        
+        try {
+            return pending.result.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // A write still queued never runs; one already taken by the writer may yet commit
+            lane.queue.remove(pending);
+            throw new IllegalStateException("Write was not committed within " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lane.queue.remove(pending);
+            throw new IllegalStateException("Interrupted while waiting for a group commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+    
+    private boolean isWriterThread() {
+        Thread current = Thread.currentThread();
+        for (Lane lane : lanes) {
+            if (lane.writer == current) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * The queue and writer thread of one shard.
+     */
+    private final class Lane {
+        
+        private final int shard;
+        private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+        private final Thread writer;
+        private volatile boolean stopped;
+        
+        Lane(int shard) {
+            this.shard = shard;
+            this.writer = new Thread(this::runWriter,
+                    shardRouter.isSharded() ? "group-commit-writer-" + shard : "group-commit-writer");
+            this.writer.setDaemon(true);
+        }
+        
+        private void runWriter() {
+            try {
+                writeBatches();
+            } finally {
+                // Set before draining, so a write added afterwards is seen by its caller
+                stopped = true;
+                List<PendingWrite<?>> abandoned = new ArrayList<>();
+                queue.drainTo(abandoned);
+                IllegalStateException e = new IllegalStateException("Group commit writer for shard " + shard + " has stopped");
+                abandoned.forEach(write -> write.fail(e));
+                if (running) {
+                    log.error("Group commit writer for shard {} stopped unexpectedly; failed {} queued writes, rejecting new ones",
+                            shard, abandoned.size());
+                }
+            }
+        }
+        
+        private void writeBatches() {
+            List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    PendingWrite<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    
+                    long deadline = System.nanoTime() + maxWait.toNanos();
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        PendingWrite<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    
+                    shardRouter.onShard(shard, () -> {
+                        commit(batch);
+                        return null;
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    batch.forEach(write -> write.fail(e));
+                    return;
+                } catch (RuntimeException | Error e) {
+                    // Writes that already completed keep their result; the rest must not wait forever
+                    batch.forEach(write -> write.fail(e));
+                    throw e;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+    }
+    
+    private void commit(List<PendingWrite<?>> batch) {
+        if (batch.size() > 1) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> batch.forEach(PendingWrite::run));
+                batch.forEach(PendingWrite::complete);
+                log.debug("Group committed {} writes", batch.size());
+                return;
+            } catch (RuntimeException | Error e) {
+                log.warn("Group commit of {} writes failed, replaying them individually", batch.size(), e);
+            }
+        }
+        
+        for (PendingWrite<?> write : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write.run());
+                write.complete();
+            } catch (RuntimeException | Error e) {
+                write.fail(e);
+            }
+        }
+    }
+    
+    private static final class PendingWrite<T> {
+        
+        private final Supplier<T> write;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        
+        PendingWrite(Supplier<T> write) {
+            this.write = write;
+        }
+        
+        void run() {
+            value = write.get();
+        }
+        
+        void complete() {
+            result.complete(value);
+        }
+        
+        void fail(Throwable e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.PageCursor;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.event.PostActivityEvent;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Materialized home feed: the newest {@code capacity} posts as ready-to-serve
+ * summaries, in the same (createdAt DESC, id ASC) order as the database feed.
+ * <p>
+ * {@link PostService} loads it from the database at startup and refreshes it
+ * periodically. In between, committed post, like and comment events keep it
+ * current. Events carry the post's summary as committed, with its summary
+ * version, and a summary only replaces one with a lower version: listeners of
+ * concurrent transactions run in any order, and a like that committed first
+ * must not overwrite the counts of one that committed after it. Events that
+ * arrive while a refresh reads the database are recorded and replayed on top
+ * of its snapshot by the same rule, so a refresh is never lost to concurrent
+ * writes. Reads never lock; writes are serialized and bump a modification
+ * count that versions the pages served from it. A refresh is published with a
+ * single volatile write, so readers see either the old contents or the new,
+ * never a mix.
+ */
+@Component
+public class HomeFeed {
+    
+    private static final Comparator<PageCursor> FEED_ORDER = Comparator
+            .comparing(PageCursor::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(PageCursor::getId);
+    
+    @Getter
+    private final int capacity;
+    // Null until the first refresh; only replaced, or changed entry by entry, while holding the lock
+    private volatile Contents contents;
+    private Map<String, PageCursor> keys = new HashMap<>();
+    
+    private long modificationCount;
+    // Events applied while a refresh reads the database, in order; null when none runs
+    private List<PostActivityEvent> recorded;
+    
+    public HomeFeed(@Value("${socialapp.feed.capacity:500}") int capacity) {
+        this.capacity = capacity;
+    }
+    
+    /**
+     * Serves a page from memory when the feed holds enough posts after the cursor
+     * to answer it exactly; otherwise the caller has to ask the database.
+     */
+    public Optional<CursorPage<PostResponse>> page(PageCursor after, int limit) {
+        Contents current = contents;
+        if (current == null) {
+            return Optional.empty();
+        }
+        
+        NavigableMap<PageCursor, PostResponse> window = after == null ? current.posts() : current.posts().tailMap(after, false);
+        List<PostResponse> items = new ArrayList<>(limit + 1);
+        for (PostResponse post : window.values()) {
+            items.add(post);
+            if (items.size() > limit) {
+                break;
+            }
+        }
+        
+        boolean hasMore = items.size() > limit;
+        if (!hasMore && !current.complete()) {
+            return Optional.empty();
+        }
+        if (hasMore) {
+            items.remove(items.size() - 1);
+        }
+        String nextCursor = hasMore ? keyOf(items.get(items.size() - 1)).encode() : null;
+        return Optional.of(new CursorPage<>(items, nextCursor));
+    }
+    
+    public synchronized long modificationCount() {
+        return modificationCount;
+    }
+    
+    /**
+     * Starts recording the events applied from now on, for {@link #replace}
+     * to replay. Called before a refresh reads anything.
+     */
+    public synchronized void startRecording() {
+        recorded = new ArrayList<>();
+    }
+    
+    public synchronized void stopRecording() {
+        recorded = null;
+    }
+    
+    /**
+     * Replaces the contents with a fresh snapshot, replays the events
+     * recorded since {@link #startRecording} on top of it, and stops
+     * recording.
+     */
+    public synchronized void replace(List<PostResponse> newestFirst, boolean complete) {
+        NavigableMap<PageCursor, PostResponse> posts = new ConcurrentSkipListMap<>(FEED_ORDER);
+        Map<String, PageCursor> keys = new HashMap<>();
+        for (PostResponse post : newestFirst) {
+            PageCursor key = keyOf(post);
+            keys.put(post.getId(), key);
+            posts.put(key, post);
+        }
+        Contents replaced = new Contents(posts, complete);
+        if (recorded != null) {
+            recorded.forEach(event -> apply(replaced, keys, event));
+            recorded = null;
+        }
+        this.keys = keys;
+        contents = replaced;
+        // A refresh can change what pages show, e.g. counters fixed by reconciliation
+        modificationCount++;
+    }
+    
+    @TransactionalEventListener
+    public synchronized void onPostActivity(PostActivityEvent event) {
+        modificationCount++;
+        if (recorded != null) {
+            recorded.add(event);
+        }
+        Contents current = contents;
+        if (current == null) {
+            // Nothing to keep current until the first refresh
+            return;
+        }
+        contents = apply(current, keys, event);
+    }
+    
+    // Returns the contents to publish, which are only replaced when the feed stops being complete
+    private Contents apply(Contents current, Map<String, PageCursor> keys, PostActivityEvent event) {
+        String postId = event.getPostId();
+        switch (event.getType()) {
+            case POST_CREATED -> {
+                if (keys.containsKey(postId)) {
+                    // Replayed on a refresh that already has it
+                    return current;
+                }
+                PostResponse post = event.getPost();
+                PageCursor key = keyOf(post);
+                keys.put(postId, key);
+                current.posts().put(key, post);
+                boolean evicted = false;
+                while (current.posts().size() > capacity) {
+                    keys.remove(current.posts().pollLastEntry().getValue().getId());
+                    evicted = true;
+                }
+                if (evicted && current.complete()) {
+                    return new Contents(current.posts(), false);
+                }
+            }
+            case POST_DELETED, POST_ARCHIVED -> {
+                PageCursor key = keys.remove(postId);
+                if (key != null) {
+                    current.posts().remove(key);
+                }
+            }
+            case COMMENT_UPDATED -> {
+                // Comment edits do not show in the feed
+            }
+            default -> {
+                // Edits, likes and comments: the event carries the whole summary as committed
+                PageCursor key = keys.get(postId);
+                PostResponse held = key == null ? null : current.posts().get(key);
+                if (held != null && event.getPost().getSummaryVersion() > held.getSummaryVersion()) {
+                    current.posts().put(key, event.getPost());
+                }
+            }
+        }
+        return current;
+    }
+    
+    private static PageCursor keyOf(PostResponse post) {
+        return new PageCursor(post.getCreatedAt(), post.getId());
+    }
+    
+    // complete: the feed holds every post there is, so a short page is the real end
+    private record Contents(NavigableMap<PageCursor, PostResponse> posts, boolean complete) {
+    }
+}
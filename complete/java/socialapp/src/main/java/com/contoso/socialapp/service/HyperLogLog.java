@@ -0,0 +1,90 @@
+package com.contoso.socialapp.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog sketch for counting distinct strings in fixed memory.
+ * <p>
+ * 2^12 one-byte registers give a standard error of about 1.6% at any
+ * cardinality. Sketches merge losslessly by taking the larger of each pair of
+ * registers, so the union of several days, or of buffered and stored
+ * sketches, is estimated as accurately as any single one.
+ */
+public class HyperLogLog {
+    
+    static final int PRECISION = 12;
+    static final int REGISTERS = 1 << PRECISION;
+    
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    
+    private final byte[] registers;
+    
+    public HyperLogLog() {
+        this(new byte[REGISTERS]);
+    }
+    
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+    
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length != REGISTERS) {
+            throw new IllegalArgumentException("Expected a sketch of " + REGISTERS + " bytes, got " + bytes.length);
+        }
+        return new HyperLogLog(bytes.clone());
+    }
+    
+    public byte[] toBytes() {
+        return registers.clone();
+    }
+    
+    public void add(String value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - PRECISION));
+        // The marker bit caps the run of zeros when every remaining bit is zero
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+    
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+    
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        // Small cardinalities are estimated more accurately by linear counting
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.round(estimate);
+    }
+    
+    // 64-bit FNV-1a, finished with MurmurHash3's fmix64 to spread it over the high bits the registers use
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,51 @@
+package com.contoso.socialapp.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a JSON array one element at a time, so a listing of any length is
+ * serialized in constant memory. The array is only closed by {@link #finish()}:
+ * a listing that fails part way must not look complete to the client.
+ */
+final class JsonArrayWriter {
+    
+    private final JsonGenerator generator;
+    
+    private JsonArrayWriter(JsonGenerator generator) {
+        this.generator = generator;
+    }
+    
+    static JsonArrayWriter start(ObjectMapper objectMapper, OutputStream out) {
+        try {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            // The stream belongs to the caller, typically the HTTP response
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            return new JsonArrayWriter(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    void write(Object element) {
+        try {
+            generator.writeObject(element);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    void finish() {
+        try {
+            generator.writeEndArray();
+            generator.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
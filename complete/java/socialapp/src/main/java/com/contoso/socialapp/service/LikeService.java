@@ -1,17 +1,29 @@
 package com.contoso.socialapp.service;
 
+import com.contoso.socialapp.dto.CursorPage;
 import com.contoso.socialapp.dto.LikeRequest;
 import com.contoso.socialapp.dto.LikeResponse;
+import com.contoso.socialapp.dto.LikeStatusResponse;
+import com.contoso.socialapp.dto.PostResponse;
 import com.contoso.socialapp.entity.Like;
-import com.contoso.socialapp.entity.Post;
+import com.contoso.socialapp.event.PostActivityEvent;
 import com.contoso.socialapp.repository.LikeRepository;
-import com.contoso.socialapp.repository.PostRepository;
+import com.contoso.socialapp.repository.PostCounterRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -20,44 +32,42 @@ import java.util.Optional;
 public class LikeService {
     
     private final LikeRepository likeRepository;
-    private final PostRepository postRepository;
+    private final PostCounterRepository postCounterRepository;
+    private final ShardRouter shardRouter;
+    private final ResponseBodyCache responseBodyCache;
+    private final ApplicationEventPublisher eventPublisher;
     
     public Optional<LikeResponse> addLike(String postId, LikeRequest request) {
         log.info("Adding like to post ID: {} by user: {}", postId, request.getUsername());
+        shardRouter.bindTo(postId);
         
-        // Check if post exists
-        Optional<Post> postOpt = postRepository.findById(postId);
-        if (postOpt.isEmpty()) {
-            log.warn("Post with ID {} not found for like", postId);
-            return Optional.empty();
+        LocalDateTime likedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        // Two statements for a new like: the conditional insert, then the counter update that returns the summary
+        if (likeRepository.insertIfAbsent(postId, request.getUsername(), likedAt) > 0) {
+            adjustCountAndPublish(PostActivityEvent.Type.LIKE_ADDED, postId, request.getUsername(), likedAt, 1);
+            responseBodyCache.evictPost(postId);
+            log.info("Added like to post ID: {} by user: {}", postId, request.getUsername());
+            return Optional.of(new LikeResponse(postId, request.getUsername(), likedAt));
         }
         
-        Post post = postOpt.get();
-        
-        // Check if user already liked this post
+        // Nothing inserted: either the like already exists or the post does not
         Optional<Like> existingLike = likeRepository.findByPostIdAndUsername(postId, request.getUsername());
         if (existingLike.isPresent()) {
             log.info("User {} already liked post ID: {}, returning existing like", request.getUsername(), postId);
             return Optional.of(convertToResponse(existingLike.get()));
         }
         
-        // Create new like
-        Like like = new Like();
-        like.setPost(post);
-        like.setUsername(request.getUsername());
-        
-        Like savedLike = likeRepository.save(like);
-        log.info("Added like to post ID: {} by user: {}", postId, request.getUsername());
-        
-        return Optional.of(convertToResponse(savedLike));
+        log.warn("Post with ID {} not found for like", postId);
+        return Optional.empty();
     }
     
     public boolean removeLike(String postId, String username) {
         log.info("Removing like from post ID: {} by user: {}", postId, username);
+        shardRouter.bindTo(postId);
         
-        Optional<Like> like = likeRepository.findByPostIdAndUsername(postId, username);
-        if (like.isPresent()) {
-            likeRepository.delete(like.get());
+        if (likeRepository.deleteByPostIdAndUsername(postId, username) > 0) {
+            adjustCountAndPublish(PostActivityEvent.Type.LIKE_REMOVED, postId, username, LocalDateTime.now(), -1);
+            responseBodyCache.evictPost(postId);
             log.info("Removed like from post ID: {} by user: {}", postId, username);
             return true;
         }
@@ -66,6 +76,36 @@ public class LikeService {
         return false;
     }
     
+    // Posts may sit on different shards, so each shard is asked in a transaction of its own
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LikeStatusResponse getLikeStatus(String username, List<String> postIds) {
+        log.info("Retrieving like status of {} posts for user: {}", postIds.size(), username);
+        if (postIds.size() > CursorPage.MAX_LIMIT) {
+            throw new RuntimeException("BAD_REQUEST: at most " + CursorPage.MAX_LIMIT + " post IDs can be checked at once");
+        }
+        if (postIds.isEmpty()) {
+            return new LikeStatusResponse(username, List.of());
+        }
+        
+        Map<Integer, Set<String>> postIdsByShard = postIds.stream()
+                .collect(Collectors.groupingBy(shardRouter::shardOf, Collectors.toSet()));
+        Set<String> liked = new HashSet<>();
+        postIdsByShard.forEach((shard, ids) ->
+                liked.addAll(shardRouter.read(shard, () -> likeRepository.findLikedPostIds(username, ids))));
+        // Keep the caller's order so the result lines up with the page being rendered
+        List<String> likedPostIds = postIds.stream()
+                .filter(liked::contains)
+                .distinct()
+                .collect(Collectors.toList());
+        return new LikeStatusResponse(username, likedPostIds);
+    }
+    
+    // The counter update returns the post as it leaves it, so the event carries the counters exactly as committed
+    private void adjustCountAndPublish(PostActivityEvent.Type type, String postId, String username, LocalDateTime at, int delta) {
+        PostResponse post = postCounterRepository.adjustLikesCount(postId, delta).orElseThrow();
+        eventPublisher.publishEvent(PostActivityEvent.forActivity(type, post, username, at));
+    }
+    
     private LikeResponse convertToResponse(Like like) {
         return new LikeResponse(
                 like.getPostId(),
@@ -0,0 +1,119 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.ArchivedPost;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.event.PostActivityEvent;
+import com.contoso.socialapp.repository.CommentRepository;
+import com.contoso.socialapp.repository.LikeRepository;
+import com.contoso.socialapp.repository.PostArchive;
+import com.contoso.socialapp.repository.PostRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Periodically moves posts older than {@code socialapp.archive.min-age}, with
+ * their comments and likes, from the hot tables into the {@link PostArchive}.
+ * <p>
+ * Each batch is committed to the archive before its hot rows are deleted, in
+ * the same transaction that read them. A failure in between leaves a post in
+ * both stores rather than in neither; reads prefer the hot copy, and the next
+ * run archives it again.
+ */
+@Component
+@Slf4j
+public class PostArchivalJob {
+    
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final LikeRepository likeRepository;
+    private final PostArchive postArchive;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int batchSize;
+    
+    public PostArchivalJob(PostRepository postRepository,
+                           CommentRepository commentRepository,
+                           LikeRepository likeRepository,
+                           PostArchive postArchive,
+                           ShardRouter shardRouter,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${socialapp.archive.enabled:false}") boolean enabled,
+                           @Value("${socialapp.archive.min-age:P90D}") Duration minAge,
+                           @Value("${socialapp.archive.batch-size:100}") int batchSize) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.likeRepository = likeRepository;
+        this.postArchive = postArchive;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+    
+    @Scheduled(initialDelayString = "${socialapp.archive.initial-delay:PT1M}",
+            fixedDelayString = "${socialapp.archive.interval:PT1H}")
+    public void run() {
+        if (enabled) {
+            archiveCreatedBefore(LocalDateTime.now().minus(minAge));
+        }
+    }
+    
+    /**
+     * Archives every post created before the cutoff, one batch per shard and
+     * transaction at a time, and returns how many were moved.
+     */
+    public int archiveCreatedBefore(LocalDateTime cutoff) {
+        int total = 0;
+        int archived;
+        do {
+            archived = shardRouter.writeEachShard(() -> archiveBatch(cutoff))
+                    .stream()
+                    .mapToInt(Integer::intValue)
+                    .sum();
+            total += archived;
+        } while (archived > 0);
+        
+        if (total > 0) {
+            log.info("Archived {} posts created before {}", total, cutoff);
+        } else {
+            log.debug("No posts created before {} to archive", cutoff);
+        }
+        return total;
+    }
+    
+    // Runs inside a write transaction bound to one shard
+    private int archiveBatch(LocalDateTime cutoff) {
+        List<PostResponse> posts = postRepository.findCreatedBefore(cutoff, PageRequest.ofSize(batchSize));
+        if (posts.isEmpty()) {
+            return 0;
+        }
+        
+        postArchive.store(posts.stream()
+                .map(post -> new ArchivedPost(
+                        post,
+                        // Same (createdAt, id) order as the comment pages served from the archive
+                        commentRepository.findPageByPostId(post.getId(), Pageable.unpaged()),
+                        likeRepository.findResponsesByPostId(post.getId())))
+                .toList());
+        
+        for (PostResponse post : posts) {
+            likeRepository.deleteAllByPostId(post.getId());
+            commentRepository.deleteAllByPostId(post.getId());
+            postRepository.deletePostById(post.getId());
+            eventPublisher.publishEvent(PostActivityEvent.of(PostActivityEvent.Type.POST_ARCHIVED, post.getId(), post.getUsername()));
+        }
+        return posts.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.event.PostActivityEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of post summaries in front of {@link PostService#getPostById}.
+ * <p>
+ * Caffeine's W-TinyLFU policy keeps the hot posts resident under a skewed
+ * workload. The cache is bounded both by entry count and by estimated memory:
+ * each entry weighs at least {@code max-size / max-entries}, so neither limit
+ * can be exceeded. Entries are dropped after any committed change to the post,
+ * its likes or its comment count. Statistics are published as the {@code posts}
+ * cache in the actuator metrics.
+ */
+@Component
+public class PostCache {
+    
+    private final Cache<String, PostResponse> cache;
+    
+    public PostCache(MeterRegistry meterRegistry,
+                     @Value("${socialapp.cache.posts.max-entries:10000}") long maxEntries,
+                     @Value("${socialapp.cache.posts.max-size:32MB}") DataSize maxSize) {
+        long minWeight = Math.max(1, maxSize.toBytes() / maxEntries);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String postId, PostResponse post) -> (int) Math.max(minWeight, estimateBytes(post)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "posts");
+    }
+    
+    public Optional<PostResponse> get(String postId, Function<String, Optional<PostResponse>> loader) {
+        // Missing posts are not cached, so a post created later is found straight away
+        return Optional.ofNullable(cache.get(postId, id -> loader.apply(id).orElse(null)));
+    }
+    
+    @TransactionalEventListener
+    public void onPostActivity(PostActivityEvent event) {
+        switch (event.getType()) {
+            case POST_CREATED, COMMENT_UPDATED -> {
+                // Neither changes a cached summary
+            }
+            default -> cache.invalidate(event.getPostId());
+        }
+    }
+    
+    private static long estimateBytes(PostResponse post) {
+        // Object headers and timestamps, plus two bytes per character of text
+        return 160L + 2L * (post.getId().length() + post.getUsername().length() + post.getContent().length());
+    }
+}
@@ -2,15 +2,33 @@ package com.contoso.socialapp.service;
 
 import com.contoso.socialapp.dto.*;
 import com.contoso.socialapp.entity.Post;
+import com.contoso.socialapp.event.PostActivityEvent;
+import com.contoso.socialapp.repository.CommentRepository;
+import com.contoso.socialapp.repository.LikeRepository;
+import com.contoso.socialapp.repository.PostArchive;
 import com.contoso.socialapp.repository.PostRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -18,14 +36,121 @@ import java.util.stream.Collectors;
 @Transactional
 public class PostService {
     
+    private static final int STREAM_BATCH_SIZE = 1_000;
+    private static final Comparator<PostResponse> FEED_ORDER = Comparator
+            .comparing(PostResponse::getCreatedAt, Comparator.reverseOrder())
+            .thenComparing(PostResponse::getId);
+    
     private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final LikeRepository likeRepository;
+    private final PostArchive postArchive;
+    private final PostCache postCache;
+    private final HomeFeed homeFeed;
+    private final ResponseBodyCache responseBodyCache;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
     
-    public List<PostResponse> getAllPosts() {
-        log.info("Retrieving all posts");
-        return postRepository.findAllOrderByCreatedAtDesc()
-                .stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    /**
+     * Writes every post, newest first, to {@code out} as one JSON array without
+     * holding the list in memory. With a single shard the rows come from one
+     * forward-only cursor, which keeps a read transaction open until the last
+     * row is written; with several, from keyset batches merged across shards.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public void writeAllPosts(OutputStream out) {
+        log.info("Streaming all posts");
+        JsonArrayWriter writer = JsonArrayWriter.start(objectMapper, out);
+        if (shardRouter.isSharded()) {
+            Pageable window = PageRequest.ofSize(STREAM_BATCH_SIZE);
+            PageCursor after = null;
+            List<PostResponse> batch;
+            do {
+                PageCursor cursor = after;
+                batch = newestAcrossShards(() -> cursor == null
+                        ? postRepository.findFeedPage(window)
+                        : postRepository.findFeedPageAfter(cursor.getCreatedAt(), cursor.getId(), window), STREAM_BATCH_SIZE);
+                batch.forEach(writer::write);
+                if (!batch.isEmpty()) {
+                    PostResponse last = batch.get(batch.size() - 1);
+                    after = new PageCursor(last.getCreatedAt(), last.getId());
+                }
+            } while (batch.size() == STREAM_BATCH_SIZE);
+        } else {
+            shardRouter.read(0, () -> {
+                try (Stream<PostResponse> posts = postRepository.streamAll()) {
+                    posts.forEach(writer::write);
+                }
+                return null;
+            });
+        }
+        writer.finish();
+    }
+    
+    // SUPPORTS opens no transaction, so a page served from the home feed never borrows a connection
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<PostResponse> getPosts(String cursor, int limit) {
+        log.info("Retrieving posts page with limit: {}", limit);
+        CursorPage.checkLimit(limit);
+        
+        PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        Optional<CursorPage<PostResponse>> fromFeed = homeFeed.page(after, limit);
+        if (fromFeed.isPresent()) {
+            return fromFeed.get();
+        }
+        
+        // Fetch one extra row to learn whether another page follows
+        Pageable window = PageRequest.ofSize(limit + 1);
+        List<PostResponse> posts = newestAcrossShards(() -> after == null
+                ? postRepository.findFeedPage(window)
+                : postRepository.findFeedPageAfter(after.getCreatedAt(), after.getId(), window), limit + 1);
+        
+        return toPage(posts, limit);
+    }
+    
+    /**
+     * Changes whenever a page of {@link #getPosts} may have changed: every post,
+     * like and comment event and every home feed refresh moves it on.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public long getFeedVersion() {
+        return homeFeed.modificationCount();
+    }
+    
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<PostResponse> getPostsByUser(String username, String cursor, int limit) {
+        log.info("Retrieving posts page for user: {} with limit: {}", username, limit);
+        CursorPage.checkLimit(limit);
+        
+        PageCursor after = cursor == null || cursor.isEmpty() ? null : PageCursor.decode(cursor);
+        Pageable window = PageRequest.ofSize(limit + 1);
+        List<PostResponse> posts = newestAcrossShards(() -> after == null
+                ? postRepository.findPageByUsername(username, window)
+                : postRepository.findPageByUsernameAfter(username, after.getCreatedAt(), after.getId(), window), limit + 1);
+        return toPage(posts, limit);
+    }
+    
+    /**
+     * Reloads the home feed from the database at startup and then periodically,
+     * which also repairs drift such as counters fixed by the reconciliation job.
+     * Writes that commit while the snapshot is read are replayed on top of it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${socialapp.feed.refresh-interval}", fixedDelayString = "${socialapp.feed.refresh-interval}")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public synchronized void refreshHomeFeed() {
+        int capacity = homeFeed.getCapacity();
+        homeFeed.startRecording();
+        try {
+            List<PostResponse> newest = newestAcrossShards(
+                    () -> postRepository.findFeedPage(PageRequest.ofSize(capacity + 1)), capacity + 1);
+            List<PostResponse> items = newest.subList(0, Math.min(capacity, newest.size()));
+            homeFeed.replace(items, newest.size() <= capacity);
+            log.debug("Home feed refreshed with {} posts", items.size());
+        } finally {
+            homeFeed.stopRecording();
+        }
     }
     
     public PostResponse createPost(NewPostRequest request) {
@@ -35,36 +160,52 @@ public class PostService {
         post.setUsername(request.getUsername());
         post.setContent(request.getContent());
         
+        // Nothing is written until flush, so the new ID can still pick the shard
         Post savedPost = postRepository.save(post);
+        shardRouter.bindTo(savedPost.getId());
         log.info("Created post with ID: {}", savedPost.getId());
         
-        return convertToResponse(savedPost);
+        PostResponse response = convertToResponse(savedPost);
+        eventPublisher.publishEvent(PostActivityEvent.forPost(PostActivityEvent.Type.POST_CREATED, response));
+        return response;
     }
     
+    @Transactional(readOnly = true)
     public Optional<PostResponse> getPostById(String postId) {
         log.info("Retrieving post with ID: {}", postId);
-        return postRepository.findById(postId)
-                .map(this::convertToResponse);
+        shardRouter.bindTo(postId);
+        // Archived posts are found on a miss; the cache then hides the slower archive lookup
+        return postCache.get(postId, id -> postRepository.findResponseById(id)
+                .or(() -> postArchive.find(id).map(ArchivedPost::getPost)));
     }
     
     public Optional<PostResponse> updatePost(String postId, UpdatePostRequest request) {
         log.info("Updating post with ID: {} by user: {}", postId, request.getUsername());
+        shardRouter.bindTo(postId);
         
-        return postRepository.findById(postId)
-                .filter(post -> post.getUsername().equals(request.getUsername()))
-                .map(post -> {
-                    post.setContent(request.getContent());
-                    Post savedPost = postRepository.save(post);
-                    log.info("Updated post with ID: {}", savedPost.getId());
-                    return convertToResponse(savedPost);
-                });
+        // Only the author's edit matches; the same statement bumps the summary version
+        LocalDateTime updatedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (postRepository.updateContent(postId, request.getUsername(), request.getContent(), updatedAt) == 0) {
+            return Optional.empty();
+        }
+        PostResponse response = postRepository.findResponseById(postId).orElseThrow();
+        responseBodyCache.evictPost(postId);
+        log.info("Updated post with ID: {}", postId);
+        
+        eventPublisher.publishEvent(PostActivityEvent.forPost(PostActivityEvent.Type.POST_UPDATED, response));
+        return Optional.of(response);
     }
     
     public boolean deletePost(String postId) {
         log.info("Deleting post with ID: {}", postId);
+        shardRouter.bindTo(postId);
         
-        if (postRepository.existsById(postId)) {
-            postRepository.deleteById(postId);
+        // Set-based deletes: the cost no longer grows with the number of likes and comments
+        likeRepository.deleteAllByPostId(postId);
+        commentRepository.deleteAllByPostId(postId);
+        if (postRepository.deletePostById(postId) > 0) {
+            eventPublisher.publishEvent(PostActivityEvent.of(PostActivityEvent.Type.POST_DELETED, postId, null));
+            responseBodyCache.evictPost(postId);
             log.info("Deleted post with ID: {}", postId);
             return true;
         }
@@ -73,8 +214,34 @@ public class PostService {
         return false;
     }
     
+    @Transactional(readOnly = true)
     public boolean postExists(String postId) {
-        return postRepository.existsById(postId);
+        shardRouter.bindTo(postId);
+        return postRepository.existsById(postId) || postArchive.find(postId).isPresent();
+    }
+    
+    // Each shard returns its own newest-first slice; the answer is the newest of their union
+    private List<PostResponse> newestAcrossShards(Supplier<List<PostResponse>> query, int limit) {
+        List<List<PostResponse>> slices = shardRouter.readEachShard(query);
+        if (slices.size() == 1) {
+            return slices.get(0);
+        }
+        return slices.stream()
+                .flatMap(List::stream)
+                .sorted(FEED_ORDER)
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+    
+    // Cuts a newest-first window of up to limit + 1 posts into a page
+    private static CursorPage<PostResponse> toPage(List<PostResponse> posts, int limit) {
+        List<PostResponse> items = posts.subList(0, Math.min(limit, posts.size()));
+        String nextCursor = null;
+        if (posts.size() > limit) {
+            PostResponse last = items.get(items.size() - 1);
+            nextCursor = new PageCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
     }
     
     private PostResponse convertToResponse(Post post) {
@@ -0,0 +1,155 @@
+package com.contoso.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of finished JSON response bodies for the hottest reads: single posts,
+ * pages of the post listing and pages of a post's comments.
+ * <p>
+ * Each body is kept as serialized bytes and, when it is large enough for
+ * compression to pay off, gzipped as well, so a hit skips both Jackson and
+ * compression. Entries are tagged with a version chosen by the caller, such as
+ * the post's ETag, its comments tag or the home feed's modification count, and only used for
+ * exactly that version; the eviction hooks called by the services on every
+ * write just return the memory early. The bound ({@code max-size}) covers both
+ * copies of every body. Statistics are published as the {@code responses}
+ * cache in the actuator metrics, with the bytes in use as {@code cache.memory}.
+ */
+@Component
+public class ResponseBodyCache {
+    
+    // Smaller bodies fit in a packet or two either way, so they are only kept raw
+    static final int MIN_GZIP_BYTES = 1024;
+    // Key, entry and array headers on top of the body bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+    
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> cache;
+    
+    public ResponseBodyCache(ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${socialapp.cache.responses.max-size:32MB}") DataSize maxSize) {
+        this.objectMapper = objectMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse entry) -> ENTRY_OVERHEAD_BYTES + 2 * key.length() + entry.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "responses");
+        Gauge.builder("cache.memory", cache, c -> c.policy().eviction().orElseThrow().weightedSize().orElse(0))
+                .tag("cache", "responses")
+                .baseUnit("bytes")
+                .description("Estimated memory held by cached response bodies")
+                .register(meterRegistry);
+    }
+    
+    public static String postKey(String postId) {
+        return "post:" + postId;
+    }
+    
+    public static String feedPageKey(String cursor, int limit) {
+        return "feed:" + limit + ":" + (cursor == null ? "" : cursor);
+    }
+    
+    // One entry per page a client has asked for; after and an empty cursor both open the thread
+    public static String commentPageKey(String postId, String after, String before, String around, int limit) {
+        String page = around != null ? "around:" + around
+                : before != null ? "before:" + before
+                : "after:" + (after == null ? "" : after);
+        return "comments:" + postId + ":" + limit + ":" + page;
+    }
+    
+    /**
+     * Returns the response cached under {@code key} for exactly {@code version},
+     * rendering and caching the loader's body on a miss. The version must be
+     * read before the body is loaded, so that a cached body is never older than
+     * its version.
+     */
+    public CachedResponse get(String key, String version, Supplier<Source> loader) {
+        CachedResponse cached = cache.getIfPresent(key);
+        if (cached != null && cached.version().equals(version)) {
+            return cached;
+        }
+        
+        CachedResponse rendered = render(version, loader.get());
+        cache.put(key, rendered);
+        return rendered;
+    }
+    
+    /**
+     * Renders a body the way {@link #get} would, for responses that have no
+     * version to be cached under.
+     */
+    public CachedResponse render(String version, Source source) {
+        byte[] json = serialize(source.body());
+        return new CachedResponse(version, source.headers(), json, json.length >= MIN_GZIP_BYTES ? gzip(json) : null);
+    }
+    
+    /**
+     * The response cached under {@code key} for exactly {@code version}, if
+     * there is one, without loading it or counting towards the statistics.
+     */
+    public Optional<CachedResponse> peek(String key, String version) {
+        return Optional.ofNullable(cache.policy().getIfPresentQuietly(key))
+                .filter(cached -> cached.version().equals(version));
+    }
+    
+    public void evictPost(String postId) {
+        cache.invalidate(postKey(postId));
+    }
+    
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize response body", e);
+        }
+    }
+    
+    // Returns null when compression would not make the body smaller
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not compress response body", e);
+        }
+        return compressed.size() < json.length ? compressed.toByteArray() : null;
+    }
+    
+    /**
+     * A body to render, with the response headers that belong with it.
+     */
+    public record Source(Object body, Map<String, String> headers) {
+        
+        public static Source of(Object body) {
+            return new Source(body, Map.of());
+        }
+    }
+    
+    /**
+     * A rendered body; {@code gzip} is null when the body is sent uncompressed only.
+     */
+    public record CachedResponse(String version, Map<String, String> headers, byte[] json, byte[] gzip) {
+        
+        int weight() {
+            return json.length + (gzip == null ? 0 : gzip.length)
+                    + headers.entrySet().stream().mapToInt(h -> 2 * (h.getKey().length() + h.getValue().length())).sum();
+        }
+    }
+}
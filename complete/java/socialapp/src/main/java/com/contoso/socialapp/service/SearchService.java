@@ -0,0 +1,87 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.SearchResult;
+import com.contoso.socialapp.repository.SearchRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SearchService {
+    
+    // Ranked results have no stable keyset, so pages are offsets into the ranking; deep offsets get expensive
+    static final int MAX_OFFSET = 1_000;
+    
+    private final SearchRepository searchRepository;
+    private final ShardRouter shardRouter;
+    
+    /**
+     * Finds posts and comments containing every word of the query, most
+     * relevant first. The cursor is the opaque position of the next page.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public CursorPage<SearchResult> search(String query, String cursor, int limit) {
+        log.info("Searching posts and comments with limit: {}", limit);
+        CursorPage.checkLimit(limit);
+        String match = toMatchExpression(query);
+        int offset = cursor == null || cursor.isEmpty() ? 0 : decodeOffset(cursor);
+        
+        // Fetch one extra row to learn whether another page follows
+        List<SearchResult> hits;
+        if (shardRouter.isSharded()) {
+            // Every shard ranks its own matches; the page is cut from their merged ranking
+            hits = shardRouter.readEachShard(() -> searchRepository.search(match, offset + limit + 1, 0))
+                    .stream()
+                    .flatMap(List::stream)
+                    .sorted(Comparator.comparingDouble(SearchResult::getScore))
+                    .skip(offset)
+                    .limit(limit + 1)
+                    .collect(Collectors.toList());
+        } else {
+            hits = shardRouter.read(0, () -> searchRepository.search(match, limit + 1, offset));
+        }
+        
+        List<SearchResult> items = hits.subList(0, Math.min(limit, hits.size()));
+        String nextCursor = hits.size() > limit && offset + limit < MAX_OFFSET ? encodeOffset(offset + limit) : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+    
+    // Each word becomes a quoted FTS5 string, so user input can never be parsed as query syntax
+    private static String toMatchExpression(String query) {
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.isEmpty()) {
+            throw new RuntimeException("BAD_REQUEST: Search query must not be empty");
+        }
+        return Arrays.stream(trimmed.split("\\s+"))
+                .map(word -> '"' + word.replace("\"", "\"\"") + '"')
+                .collect(Collectors.joining(" "));
+    }
+    
+    private static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Integer.toString(offset).getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static int decodeOffset(String cursor) {
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            if (offset < 0 || offset >= MAX_OFFSET) {
+                throw new IllegalArgumentException("Offset out of range");
+            }
+            return offset;
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("BAD_REQUEST: Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.contoso.socialapp.service;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Decides which shard a unit of work runs on.
+ * <p>
+ * A post, its comments and its likes all live on the shard picked by a hash of
+ * the post ID. The choice is kept in a thread-local that the sharded data source
+ * (see {@code ShardedStorageConfig}) reads when a transaction issues its first
+ * statement, so a transaction can be bound to its shard any time before then,
+ * e.g. right after a new post's ID has been generated. A transaction never
+ * spans shards; work that needs several, such as the feed, runs one
+ * transaction per shard and merges the results.
+ * <p>
+ * With a single shard (the default) every call lands on shard 0 and the
+ * binding is ignored by the regular data source.
+ */
+@Component
+public class ShardRouter {
+    
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    
+    @Getter
+    private final int shardCount;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    
+    public ShardRouter(PlatformTransactionManager transactionManager,
+                       @Value("${socialapp.storage.shards.count:1}") int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("socialapp.storage.shards.count must be at least 1");
+        }
+        this.shardCount = shardCount;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+    
+    /**
+     * The shard bound to the current thread, or null when none is, in which case
+     * the sharded data source falls back to shard 0.
+     */
+    public static Integer currentShard() {
+        return CURRENT.get();
+    }
+    
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+    
+    public int shardOf(String postId) {
+        return Math.floorMod(postId.hashCode(), shardCount);
+    }
+    
+    /**
+     * Binds the current transaction to the shard that owns the post. Must be
+     * called before the transaction's first statement; the binding is released
+     * when the transaction completes.
+     */
+    public void bindTo(String postId) {
+        int shard = shardOf(postId);
+        Integer current = CURRENT.get();
+        if (current != null) {
+            if (current != shard) {
+                throw new IllegalStateException("Post " + postId + " lives on shard " + shard
+                        + " but this transaction is already bound to shard " + current);
+            }
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Binding to a shard requires a transaction");
+        }
+        CURRENT.set(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                CURRENT.remove();
+            }
+        });
+    }
+    
+    /**
+     * Runs work, which may open its own transactions, with the given shard bound.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+    
+    public <T> T read(int shard, Supplier<T> read) {
+        return onShard(shard, () -> readTransaction.execute(status -> read.get()));
+    }
+    
+    public <T> T write(int shard, Supplier<T> write) {
+        return onShard(shard, () -> writeTransaction.execute(status -> write.get()));
+    }
+    
+    /**
+     * Runs the read in a read-only transaction on every shard, in shard order.
+     */
+    public <T> List<T> readEachShard(Supplier<T> read) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.add(read(shard, read));
+        }
+        return results;
+    }
+    
+    /**
+     * Runs the write in a transaction of its own on every shard, in shard order.
+     */
+    public <T> List<T> writeEachShard(Supplier<T> write) {
+        List<T> results = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            results.add(write(shard, write));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,68 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.DailyLikersResponse;
+import com.contoso.socialapp.dto.HourlyActivityResponse;
+import com.contoso.socialapp.dto.StatsResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+
+/**
+ * Serves activity statistics from the rollups kept by {@link ActivityRollups};
+ * the posts, likes and comments tables are never read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatsService {
+    
+    static final Duration MAX_RANGE = Duration.ofDays(31);
+    
+    private final ActivityRollups activityRollups;
+    
+    /**
+     * Returns the activity of the hours overlapping [from, to), by default the
+     * last 24 hours.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public StatsResponse getStats(LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = ceilToHour(to != null ? to : LocalDateTime.now());
+        LocalDateTime start = (from != null ? from : end.minusDays(1)).truncatedTo(ChronoUnit.HOURS);
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("BAD_REQUEST: from must be before to");
+        }
+        if (Duration.between(start, end).compareTo(MAX_RANGE) > 0) {
+            throw new RuntimeException("BAD_REQUEST: Stats range must not exceed " + MAX_RANGE.toDays() + " days");
+        }
+        log.info("Retrieving stats from {} to {}", start, end);
+        ActivityRollups.Snapshot rollups = activityRollups.read(start, end);
+        
+        StatsResponse response = new StatsResponse(start, end, 0, 0, 0, 0, new ArrayList<>(), new ArrayList<>());
+        rollups.hours().forEach((hour, counts) -> {
+            response.getHours().add(new HourlyActivityResponse(hour,
+                    counts[ActivityRollups.POSTS], counts[ActivityRollups.LIKES], counts[ActivityRollups.COMMENTS]));
+            response.setPosts(response.getPosts() + counts[ActivityRollups.POSTS]);
+            response.setLikes(response.getLikes() + counts[ActivityRollups.LIKES]);
+            response.setComments(response.getComments() + counts[ActivityRollups.COMMENTS]);
+        });
+        HyperLogLog allLikers = new HyperLogLog();
+        rollups.likers().forEach((day, sketch) -> {
+            response.getDays().add(new DailyLikersResponse(day, sketch.estimate()));
+            allLikers.merge(sketch);
+        });
+        response.setUniqueLikers(allLikers.estimate());
+        return response;
+    }
+    
+    private static LocalDateTime ceilToHour(LocalDateTime time) {
+        LocalDateTime hour = time.truncatedTo(ChronoUnit.HOURS);
+        return hour.equals(time) ? hour : hour.plusHours(1);
+    }
+}
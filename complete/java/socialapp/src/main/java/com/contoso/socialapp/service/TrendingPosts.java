@@ -0,0 +1,254 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.ActivityCount;
+import com.contoso.socialapp.event.PostActivityEvent;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Trending ranking: every post with recent activity has a score that decays
+ * with a half-life of {@code socialapp.trending.half-life}, and the
+ * {@code capacity} highest scores are kept in a min-heap.
+ * <p>
+ * Scores use forward decay: an event at time t adds {@code weight * 2^((t - landmark) / halfLife)}.
+ * Newer events are worth more than older ones, but a score never has to be
+ * decayed as time passes, so an event only touches its own post and the heap
+ * in O(log K) time. When the exponents grow large, every score is rescaled to
+ * a new landmark, which keeps the order, and scores that have decayed to
+ * nothing are dropped.
+ * <p>
+ * Committed like and comment events keep it current; {@link TrendingService}
+ * rebuilds it from the database at startup and periodically, which also
+ * corrects the approximations below. A rebuild groups activity by post in
+ * short windows and scores each group at the midpoint of its first and last
+ * event. Unlikes and comment deletions subtract
+ * an event's worth at the time of removal, and a post whose score drops is
+ * not swapped for a stronger post outside the heap until that post's next
+ * event or the next rebuild.
+ * <p>
+ * A rebuild never throws away activity that arrives while it reads. Events
+ * committed in the meantime are recorded and replayed on top of the rebuilt
+ * scores when they are not already part of them: a rebuild counts likes and
+ * comments timestamped before its cutoff, one per shard, and like and comment
+ * events carry the timestamp of their row, so exactly the events at or after
+ * the cutoff are replayed. A like or comment timestamped before the cutoff
+ * whose transaction only commits after its shard was read is missed until the
+ * next rebuild, and a removal is replayed by the time it happened rather than
+ * by when it committed.
+ */
+@Component
+public class TrendingPosts {
+    
+    static final double LIKE_WEIGHT = 1.0;
+    static final double COMMENT_WEIGHT = 2.0;
+    
+    // 2^40 is far from overflowing a double while leaving room for many more events
+    private static final double MAX_EXPONENT = 40;
+    // Scores below this, relative to a like at the landmark, no longer matter
+    private static final double NEGLIGIBLE = 1e-4;
+    
+    private static final Comparator<Ranked> BY_SCORE = Comparator
+            .comparingDouble(Ranked::score)
+            .thenComparing(Ranked::postId, Comparator.reverseOrder());
+    
+    @Getter
+    private final int capacity;
+    @Getter
+    private final Duration halfLife;
+    private final double halfLifeSeconds;
+    
+    private final Map<String, Double> scores = new HashMap<>();
+    private final Map<String, Ranked> ranked = new HashMap<>();
+    private final PriorityQueue<Ranked> heap = new PriorityQueue<>(BY_SCORE);
+    private long landmark;
+    // Events applied while a rebuild reads the database, in order; null when none runs
+    private List<PostActivityEvent> recorded;
+    // Highest score first; rebuilt on the first read after a change
+    private volatile List<String> top = List.of();
+    private volatile boolean topStale;
+    
+    public TrendingPosts(@Value("${socialapp.trending.capacity:100}") int capacity,
+                         @Value("${socialapp.trending.half-life:PT6H}") Duration halfLife) {
+        this.capacity = capacity;
+        this.halfLife = halfLife;
+        this.halfLifeSeconds = halfLife.toSeconds();
+        this.landmark = epochSecond(LocalDateTime.now());
+    }
+    
+    /**
+     * The IDs of the {@code limit} top posts, highest score first.
+     */
+    public List<String> top(int limit) {
+        List<String> current = top;
+        if (topStale) {
+            current = refreshTop();
+        }
+        return current.subList(0, Math.min(limit, current.size()));
+    }
+    
+    /**
+     * Starts recording the events applied from now on, for
+     * {@link #replace} to replay. Called before a rebuild reads anything.
+     */
+    public synchronized void startRecording() {
+        recorded = new ArrayList<>();
+    }
+    
+    public synchronized void stopRecording() {
+        recorded = null;
+    }
+    
+    /**
+     * Replaces all scores with ones computed from the given activity, which
+     * was counted up to the cutoff of each post's shard, then replays the
+     * recorded events the counts cannot include, and stops recording.
+     */
+    public synchronized void replace(List<ActivityCount> likes, List<ActivityCount> comments,
+                                     Function<String, LocalDateTime> cutoffOf) {
+        scores.clear();
+        ranked.clear();
+        heap.clear();
+        landmark = epochSecond(LocalDateTime.now());
+        likes.forEach(counted -> add(counted.getPostId(), LIKE_WEIGHT * counted.getCount(), midpoint(counted)));
+        comments.forEach(counted -> add(counted.getPostId(), COMMENT_WEIGHT * counted.getCount(), midpoint(counted)));
+        if (recorded != null) {
+            for (PostActivityEvent event : recorded) {
+                if (!event.getOccurredAt().isBefore(cutoffOf.apply(event.getPostId()))
+                        || event.getType() == PostActivityEvent.Type.POST_DELETED
+                        || event.getType() == PostActivityEvent.Type.POST_ARCHIVED) {
+                    apply(event);
+                }
+            }
+        }
+        recorded = null;
+        topStale = true;
+    }
+    
+    /**
+     * Applies the event once the transaction that published it has
+     * committed, and drops it if that transaction rolls back.
+     */
+    @EventListener
+    public void onPostActivityPublished(PostActivityEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    onPostActivity(event);
+                }
+            }
+        });
+    }
+    
+    public synchronized void onPostActivity(PostActivityEvent event) {
+        apply(event);
+        if (recorded != null) {
+            recorded.add(event);
+        }
+        topStale = true;
+    }
+    
+    private void apply(PostActivityEvent event) {
+        String postId = event.getPostId();
+        switch (event.getType()) {
+            case LIKE_ADDED -> add(postId, LIKE_WEIGHT, event.getOccurredAt());
+            case LIKE_REMOVED -> add(postId, -LIKE_WEIGHT, event.getOccurredAt());
+            case COMMENT_CREATED -> add(postId, COMMENT_WEIGHT, event.getOccurredAt());
+            case COMMENT_DELETED -> add(postId, -COMMENT_WEIGHT, event.getOccurredAt());
+            case POST_DELETED, POST_ARCHIVED -> remove(postId);
+            default -> {
+                // Edits do not make a post trend
+            }
+        }
+    }
+    
+    private void add(String postId, double weight, LocalDateTime at) {
+        long seconds = epochSecond(at);
+        if ((seconds - landmark) / halfLifeSeconds > MAX_EXPONENT) {
+            rebase(seconds);
+        }
+        double score = Math.max(0, scores.getOrDefault(postId, 0.0) + weight * Math.pow(2, (seconds - landmark) / halfLifeSeconds));
+        scores.put(postId, score);
+        
+        Ranked previous = ranked.remove(postId);
+        if (previous != null) {
+            heap.remove(previous);
+        } else if (heap.size() >= capacity) {
+            if (score <= heap.peek().score()) {
+                return;
+            }
+            ranked.remove(heap.poll().postId());
+        }
+        Ranked entry = new Ranked(postId, score);
+        heap.add(entry);
+        ranked.put(postId, entry);
+    }
+    
+    private void remove(String postId) {
+        scores.remove(postId);
+        Ranked entry = ranked.remove(postId);
+        if (entry != null) {
+            heap.remove(entry);
+        }
+    }
+    
+    // Rescaling every score by the same factor keeps their order, so the heap stays valid
+    private void rebase(long newLandmark) {
+        double factor = Math.pow(2, -(newLandmark - landmark) / halfLifeSeconds);
+        landmark = newLandmark;
+        scores.replaceAll((postId, score) -> score * factor);
+        scores.values().removeIf(score -> score < NEGLIGIBLE);
+        
+        List<Ranked> rescaled = new ArrayList<>(heap.size());
+        for (Ranked entry : heap) {
+            if (scores.containsKey(entry.postId())) {
+                rescaled.add(new Ranked(entry.postId(), entry.score() * factor));
+            }
+        }
+        heap.clear();
+        ranked.clear();
+        for (Ranked entry : rescaled) {
+            heap.add(entry);
+            ranked.put(entry.postId(), entry);
+        }
+    }
+    
+    private synchronized List<String> refreshTop() {
+        if (topStale) {
+            List<Ranked> entries = new ArrayList<>(heap);
+            entries.sort(BY_SCORE.reversed());
+            top = entries.stream().map(Ranked::postId).toList();
+            topStale = false;
+        }
+        return top;
+    }
+    
+    private static LocalDateTime midpoint(ActivityCount counted) {
+        return counted.getFirst().plus(Duration.between(counted.getFirst(), counted.getLast()).dividedBy(2));
+    }
+    
+    private static long epochSecond(LocalDateTime at) {
+        return at.toEpochSecond(ZoneOffset.UTC);
+    }
+    
+    private record Ranked(String postId, double score) {
+    }
+}
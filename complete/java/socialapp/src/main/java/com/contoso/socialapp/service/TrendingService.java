@@ -0,0 +1,102 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.ActivityCount;
+import com.contoso.socialapp.dto.ArchivedPost;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.repository.CommentRepository;
+import com.contoso.socialapp.repository.LikeRepository;
+import com.contoso.socialapp.repository.PostArchive;
+import com.contoso.socialapp.repository.PostRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingService {
+    
+    // After this many half-lives an event is worth less than 1/65536 of a new one
+    private static final int HORIZON_HALF_LIVES = 16;
+    // Activity within a quarter half-life is scored at one instant, off by at most 2^(1/8), about 9%
+    private static final int WINDOWS_PER_HALF_LIFE = 4;
+    
+    private final TrendingPosts trendingPosts;
+    private final PostRepository postRepository;
+    private final LikeRepository likeRepository;
+    private final CommentRepository commentRepository;
+    private final PostArchive postArchive;
+    private final PostCache postCache;
+    private final ShardRouter shardRouter;
+    
+    /**
+     * The top trending posts, highest score first. Summaries come from the
+     * post cache, so a warm call does not touch the database.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public List<PostResponse> getTrendingPosts(int limit) {
+        log.info("Retrieving trending posts with limit: {}", limit);
+        CursorPage.checkLimit(limit);
+        return trendingPosts.top(limit).stream()
+                .map(postId -> postCache.get(postId, this::loadPost))
+                .flatMap(Optional::stream)
+                .toList();
+    }
+    
+    /**
+     * Recomputes every score from the likes and comments in the database at
+     * startup and then periodically. Each shard returns one row per post and
+     * window rather than one per like or comment, counted up to a cutoff taken
+     * as its read starts; activity that commits while the rebuild runs is
+     * replayed on top rather than lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${socialapp.trending.rebuild-interval}", fixedDelayString = "${socialapp.trending.rebuild-interval}")
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public synchronized void rebuild() {
+        trendingPosts.startRecording();
+        try {
+            List<ShardActivity> shards = shardRouter.readEachShard(this::countByWindow);
+            List<ActivityCount> likes = shards.stream().flatMap(shard -> shard.likes().stream()).toList();
+            List<ActivityCount> comments = shards.stream().flatMap(shard -> shard.comments().stream()).toList();
+            trendingPosts.replace(likes, comments, postId -> shards.get(shardRouter.shardOf(postId)).cutoff());
+            log.debug("Trending scores rebuilt from {} liked and {} commented post windows", likes.size(), comments.size());
+        } finally {
+            trendingPosts.stopRecording();
+        }
+    }
+    
+    // Counts the current shard's likes and comments in every window of the horizon ending now
+    private ShardActivity countByWindow() {
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Duration window = trendingPosts.getHalfLife().dividedBy(WINDOWS_PER_HALF_LIFE);
+        LocalDateTime since = cutoff.minus(window.multipliedBy((long) HORIZON_HALF_LIVES * WINDOWS_PER_HALF_LIFE));
+        List<ActivityCount> likes = new ArrayList<>();
+        List<ActivityCount> comments = new ArrayList<>();
+        for (LocalDateTime from = since; from.isBefore(cutoff); from = from.plus(window)) {
+            likes.addAll(likeRepository.countLikesBetween(from, from.plus(window)));
+            comments.addAll(commentRepository.countCommentsBetween(from, from.plus(window)));
+        }
+        return new ShardActivity(cutoff, likes, comments);
+    }
+    private Optional<PostResponse> loadPost(String postId) {
+        return shardRouter.read(shardRouter.shardOf(postId), () -> postRepository.findResponseById(postId))
+                .or(() -> postArchive.find(postId).map(ArchivedPost::getPost));
+    }
+    
+    private record ShardActivity(LocalDateTime cutoff, List<ActivityCount> likes, List<ActivityCount> comments) {
+    }
+}
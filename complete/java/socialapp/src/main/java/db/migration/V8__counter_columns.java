@@ -0,0 +1,50 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Adds the like and comment counters to a {@code posts} table created by the
+ * former {@code ddl-auto=update} setup, which V1 adopted as it was: its
+ * {@code CREATE TABLE IF NOT EXISTS} never adds columns to an existing table.
+ * Counters added here are filled from the likes and comments already stored.
+ * Databases created by V1 already have both columns and are left alone.
+ */
+public class V8__counter_columns extends BaseJavaMigration {
+    
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection con = context.getConnection();
+        Set<String> columns = columns(con, "posts");
+        try (Statement statement = con.createStatement()) {
+            if (!columns.contains("likes_count")) {
+                statement.executeUpdate("ALTER TABLE posts ADD COLUMN likes_count INTEGER NOT NULL DEFAULT 0");
+                statement.executeUpdate("UPDATE posts SET likes_count = "
+                        + "(SELECT COUNT(*) FROM likes l WHERE l.post_id = posts.id)");
+            }
+            if (!columns.contains("comments_count")) {
+                statement.executeUpdate("ALTER TABLE posts ADD COLUMN comments_count INTEGER NOT NULL DEFAULT 0");
+                statement.executeUpdate("UPDATE posts SET comments_count = "
+                        + "(SELECT COUNT(*) FROM comments c WHERE c.post_id = posts.id)");
+            }
+        }
+    }
+    
+    private static Set<String> columns(Connection con, String table) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        return columns;
+    }
+}
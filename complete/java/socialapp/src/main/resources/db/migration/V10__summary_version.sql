@@ -0,0 +1,4 @@
+-- Bumped by every change to what a post's summary shows, its content and its like and
+-- comment counters, in the same statement as the change; the home feed keeps whichever
+-- copy of a summary has the higher version.
+ALTER TABLE posts ADD COLUMN summary_version INTEGER NOT NULL DEFAULT 0;
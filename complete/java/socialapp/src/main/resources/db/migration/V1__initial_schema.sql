@@ -0,0 +1,38 @@
+-- Baseline schema. IF NOT EXISTS lets databases created by the former
+-- ddl-auto=update setup adopt the migration history without being rebuilt.
+
+CREATE TABLE IF NOT EXISTS posts (
+    id             VARCHAR(255)  NOT NULL PRIMARY KEY,
+    username       VARCHAR(50)   NOT NULL,
+    content        VARCHAR(2000) NOT NULL,
+    created_at     TIMESTAMP     NOT NULL,
+    updated_at     TIMESTAMP     NOT NULL,
+    likes_count    INTEGER       NOT NULL DEFAULT 0,
+    comments_count INTEGER       NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS comments (
+    id         VARCHAR(255)  NOT NULL PRIMARY KEY,
+    post_id    VARCHAR(255)  NOT NULL REFERENCES posts (id),
+    username   VARCHAR(50)   NOT NULL,
+    content    VARCHAR(1000) NOT NULL,
+    created_at TIMESTAMP     NOT NULL,
+    updated_at TIMESTAMP     NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    post_id  VARCHAR(255) NOT NULL REFERENCES posts (id),
+    username VARCHAR(50)  NOT NULL,
+    liked_at TIMESTAMP    NOT NULL,
+    PRIMARY KEY (post_id, username)
+);
+
+-- Feed keyset pages: PostRepository.findFeedPage / findFeedPageAfter / findAllOrderByCreatedAtDesc
+CREATE INDEX IF NOT EXISTS idx_posts_created_at_id ON posts (created_at DESC, id);
+
+-- Comment threads: CommentRepository.findPageByPostId* / findByPostIdOrderByCreatedAtAsc,
+-- and the per-post comment counts in PostRepository.reconcileCounters
+CREATE INDEX IF NOT EXISTS idx_comments_post_id_created_at_id ON comments (post_id, created_at, id);
+
+-- likes needs no secondary index: its (post_id, username) primary key serves
+-- LikeRepository lookups and deletes as well as per-post like counts
@@ -0,0 +1,3 @@
+-- "Liked by me" lookups for a page of posts: LikeRepository.findLikedPostIds.
+-- The primary key leads with post_id, so it cannot serve a per-user probe.
+CREATE INDEX IF NOT EXISTS idx_likes_username_post_id ON likes (username, post_id);
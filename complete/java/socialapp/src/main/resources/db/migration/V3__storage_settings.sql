@@ -0,0 +1,9 @@
+-- Storage-level settings that the application checks on startup.
+-- id_format records how post and comment IDs are stored: 'text' (36-character
+-- UUID strings) or 'binary' (16-byte blobs); see IdFormatMigration.
+CREATE TABLE IF NOT EXISTS storage_settings (
+    name  VARCHAR(50)  NOT NULL PRIMARY KEY,
+    value VARCHAR(255) NOT NULL
+);
+
+INSERT OR IGNORE INTO storage_settings (name, value) VALUES ('id_format', 'text');
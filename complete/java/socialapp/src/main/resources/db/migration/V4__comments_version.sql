@@ -0,0 +1,3 @@
+-- Bumped with every comment created, edited or deleted on the post, in the same
+-- transaction as the change; CommentListCache entries are tagged with it.
+ALTER TABLE posts ADD COLUMN comments_version INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,50 @@
+-- Full-text search over post and comment content: SearchRepository.search.
+--
+-- search_index is an FTS5 table holding a copy of each text. search_docs maps
+-- its rowids to the post or comment they index, so the triggers below find a
+-- document's FTS row by key instead of scanning the index. The triggers keep
+-- both tables in step with every insert, content edit and delete, including
+-- the bulk deletes done by PostService.deletePost and the archival job.
+CREATE TABLE search_docs (
+    id     INTEGER      NOT NULL PRIMARY KEY,
+    doc_id VARCHAR(255) NOT NULL UNIQUE,
+    kind   VARCHAR(10)  NOT NULL
+);
+
+CREATE VIRTUAL TABLE search_index USING fts5(content, tokenize = 'unicode61 remove_diacritics 2');
+
+CREATE TRIGGER posts_search_insert AFTER INSERT ON posts BEGIN
+    INSERT INTO search_docs (doc_id, kind) VALUES (new.id, 'post');
+    INSERT INTO search_index (rowid, content) VALUES ((SELECT id FROM search_docs WHERE doc_id = new.id), new.content);
+END;
+
+CREATE TRIGGER posts_search_update AFTER UPDATE OF content ON posts BEGIN
+    UPDATE search_index SET content = new.content WHERE rowid = (SELECT id FROM search_docs WHERE doc_id = new.id);
+END;
+
+CREATE TRIGGER posts_search_delete AFTER DELETE ON posts BEGIN
+    DELETE FROM search_index WHERE rowid = (SELECT id FROM search_docs WHERE doc_id = old.id);
+    DELETE FROM search_docs WHERE doc_id = old.id;
+END;
+
+CREATE TRIGGER comments_search_insert AFTER INSERT ON comments BEGIN
+    INSERT INTO search_docs (doc_id, kind) VALUES (new.id, 'comment');
+    INSERT INTO search_index (rowid, content) VALUES ((SELECT id FROM search_docs WHERE doc_id = new.id), new.content);
+END;
+
+CREATE TRIGGER comments_search_update AFTER UPDATE OF content ON comments BEGIN
+    UPDATE search_index SET content = new.content WHERE rowid = (SELECT id FROM search_docs WHERE doc_id = new.id);
+END;
+
+CREATE TRIGGER comments_search_delete AFTER DELETE ON comments BEGIN
+    DELETE FROM search_index WHERE rowid = (SELECT id FROM search_docs WHERE doc_id = old.id);
+    DELETE FROM search_docs WHERE doc_id = old.id;
+END;
+
+-- Index what is already there
+INSERT INTO search_docs (doc_id, kind) SELECT id, 'post' FROM posts;
+INSERT INTO search_docs (doc_id, kind) SELECT id, 'comment' FROM comments;
+INSERT INTO search_index (rowid, content)
+    SELECT d.id, p.content FROM search_docs d JOIN posts p ON p.id = d.doc_id WHERE d.kind = 'post';
+INSERT INTO search_index (rowid, content)
+    SELECT d.id, c.content FROM search_docs d JOIN comments c ON c.id = d.doc_id WHERE d.kind = 'comment';
@@ -0,0 +1,3 @@
+-- Per-user timelines: PostRepository.findPageByUsername / findPageByUsernameAfter.
+-- Each keyset page is a seek on username plus the cursor, then LIMIT rows in index order.
+CREATE INDEX IF NOT EXISTS idx_posts_username_created_at_id ON posts (username, created_at DESC, id);
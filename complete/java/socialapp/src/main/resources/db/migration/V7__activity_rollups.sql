@@ -0,0 +1,14 @@
+-- Pre-aggregated activity for GET /api/stats, written by ActivityRollups so that
+-- statistics never scan posts, likes or comments.
+CREATE TABLE IF NOT EXISTS activity_hourly (
+    hour_start TIMESTAMP NOT NULL PRIMARY KEY,
+    posts      INTEGER   NOT NULL DEFAULT 0,
+    likes      INTEGER   NOT NULL DEFAULT 0,
+    comments   INTEGER   NOT NULL DEFAULT 0
+);
+
+-- One HyperLogLog sketch of the users who liked anything that day
+CREATE TABLE IF NOT EXISTS likers_daily (
+    day    DATE NOT NULL PRIMARY KEY,
+    sketch BLOB NOT NULL
+);
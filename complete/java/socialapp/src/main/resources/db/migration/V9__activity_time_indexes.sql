@@ -0,0 +1,4 @@
+-- Trending rebuilds: LikeRepository.countLikesBetween / CommentRepository.countCommentsBetween.
+-- Each window of recent activity is a range seek instead of a scan of every like or comment.
+CREATE INDEX IF NOT EXISTS idx_likes_liked_at ON likes (liked_at);
+CREATE INDEX IF NOT EXISTS idx_comments_created_at ON comments (created_at);
@@ -1,9 +1,8 @@
 package com.contoso.socialapp;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SocialAppTest
 class SocialAppApplicationTests {
 
 	@Test
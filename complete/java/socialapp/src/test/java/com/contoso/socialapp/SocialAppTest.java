@@ -0,0 +1,31 @@
+package com.contoso.socialapp;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.annotation.AliasFor;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A {@link SpringBootTest} running against throwaway SQLite files.
+ * <p>
+ * Every application context gets a directory of its own for the database, the
+ * archive and any shard files (see {@link TestStorage}), and scheduled jobs are
+ * switched off, so tests that need a job run it themselves. Test classes with
+ * the same configuration share one cached context and therefore one database:
+ * assert only on rows the test created.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@ContextConfiguration(initializers = TestStorage.class)
+public @interface SocialAppTest {
+    
+    @AliasFor(annotation = SpringBootTest.class)
+    String[] properties() default {};
+}
@@ -0,0 +1,41 @@
+package com.contoso.socialapp;
+
+import org.springframework.beans.factory.support.DefaultSingletonBeanRegistry;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Points a test context's storage at a fresh temporary directory, which is
+ * deleted when the context closes.
+ */
+class TestStorage implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        Path dir;
+        try {
+            dir = Files.createTempDirectory("socialapp-test-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        TestPropertyValues.of(
+                "spring.datasource.url=jdbc:sqlite:" + dir.resolve("sns_api.db"),
+                "socialapp.storage.sqlite.path=" + dir.resolve("sns_api.db"),
+                "socialapp.storage.shards.path-pattern=" + dir.resolve("shard-%d.db"),
+                "socialapp.archive.path=" + dir.resolve("archive.db"),
+                "socialapp.scheduling.enabled=false"
+        ).applyTo(context);
+        
+        // Registered before any other bean, so it is destroyed after the connection pools are closed
+        if (context.getBeanFactory() instanceof DefaultSingletonBeanRegistry registry) {
+            registry.registerDisposableBean("testStorageCleanup", () -> FileSystemUtils.deleteRecursively(dir));
+        }
+    }
+}
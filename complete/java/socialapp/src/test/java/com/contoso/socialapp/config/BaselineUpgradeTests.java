@@ -0,0 +1,93 @@
+package com.contoso.socialapp.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A database created by the original {@code ddl-auto=update} setup must come
+ * out of the migrations with the same tables as a new one, and with counters
+ * that match the likes and comments it already held.
+ */
+class BaselineUpgradeTests {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void upgradesBaselineSchema() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("baseline.db");
+        try (Connection con = DriverManager.getConnection(url);
+             Statement statement = con.createStatement()) {
+            // The tables as Hibernate created them for the original entities
+            statement.executeUpdate("CREATE TABLE posts (id VARCHAR(255) NOT NULL, content VARCHAR(2000) NOT NULL, "
+                    + "created_at TIMESTAMP NOT NULL, updated_at TIMESTAMP NOT NULL, username VARCHAR(50) NOT NULL, "
+                    + "PRIMARY KEY (id))");
+            statement.executeUpdate("CREATE TABLE comments (content VARCHAR(1000) NOT NULL, created_at TIMESTAMP NOT NULL, "
+                    + "id VARCHAR(255) NOT NULL, post_id VARCHAR(255) NOT NULL, updated_at TIMESTAMP NOT NULL, "
+                    + "username VARCHAR(50) NOT NULL, PRIMARY KEY (id), FOREIGN KEY (post_id) REFERENCES posts)");
+            statement.executeUpdate("CREATE TABLE likes (liked_at TIMESTAMP NOT NULL, post_id VARCHAR(255) NOT NULL, "
+                    + "username VARCHAR(50) NOT NULL, PRIMARY KEY (post_id, username), FOREIGN KEY (post_id) REFERENCES posts)");
+            
+            statement.executeUpdate("INSERT INTO posts (id, username, content, created_at, updated_at) "
+                    + "VALUES ('busy', 'author', 'Hello upgrade', 0, 0), ('quiet', 'author', 'Nobody here', 0, 0)");
+            statement.executeUpdate("INSERT INTO comments (id, post_id, username, content, created_at, updated_at) "
+                    + "VALUES ('c1', 'busy', 'fan', 'First', 0, 0), ('c2', 'busy', 'other', 'Second', 0, 0)");
+            statement.executeUpdate("INSERT INTO likes (post_id, username, liked_at) "
+                    + "VALUES ('busy', 'fan', 0), ('busy', 'other', 0), ('busy', 'third', 0)");
+        }
+        
+        migrate(url);
+        
+        String freshUrl = "jdbc:sqlite:" + dir.resolve("fresh.db");
+        migrate(freshUrl);
+        for (String table : List.of("posts", "comments", "likes")) {
+            String columns = "SELECT name FROM pragma_table_info('" + table + "') ORDER BY name";
+            assertEquals(query(freshUrl, columns), query(url, columns), table);
+        }
+        
+        assertEquals(List.of("busy|3|2|0", "quiet|0|0|0"),
+                query(url, "SELECT id || '|' || likes_count || '|' || comments_count || '|' || comments_version FROM posts ORDER BY id"));
+        // Rows that predate the search index are searchable too
+        assertEquals(List.of("1"), query(url, "SELECT COUNT(*) FROM search_index WHERE search_index MATCH 'upgrade'"));
+        
+        // Migrating again finds nothing left to do
+        migrate(url);
+        assertEquals(List.of("busy|3|2|0", "quiet|0|0|0"),
+                query(url, "SELECT id || '|' || likes_count || '|' || comments_count || '|' || comments_version FROM posts ORDER BY id"));
+    }
+    
+    // Configured like the application's Flyway, see spring.flyway.* and ShardedStorageConfig
+    private static void migrate(String url) {
+        Flyway.configure()
+                .dataSource(url, null, null)
+                .callbacks(new IdFormatMigration(false))
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+    }
+    
+    private static List<String> query(String url, String sql) throws Exception {
+        List<String> values = new ArrayList<>();
+        try (Connection con = DriverManager.getConnection(url);
+             PreparedStatement statement = con.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
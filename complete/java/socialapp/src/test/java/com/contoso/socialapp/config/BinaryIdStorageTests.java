@@ -0,0 +1,60 @@
+package com.contoso.socialapp.config;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.service.CommentService;
+import com.contoso.socialapp.service.LikeService;
+import com.contoso.socialapp.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * With {@code socialapp.storage.binary-ids=true}, the entity manager factory
+ * writes IDs as 16-byte blobs, native statements follow the stored form, and
+ * the API still sees the usual UUID strings.
+ */
+@SocialAppTest(properties = "socialapp.storage.binary-ids=true")
+class BinaryIdStorageTests {
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void storesIdsAsBlobs() {
+        PostResponse post = postService.createPost(new NewPostRequest("author", "Stored compactly"));
+        CommentResponse comment = commentService.createComment(post.getId(), new NewCommentRequest("fan", "Nice")).orElseThrow();
+        likeService.addLike(post.getId(), new LikeRequest("fan")).orElseThrow();
+        
+        assertEquals(List.of("blob"), jdbcTemplate.queryForList(
+                "SELECT typeof(id) FROM posts WHERE id = unhex(replace(?, '-', ''))", String.class, post.getId()));
+        assertEquals(List.of("blob|blob"), jdbcTemplate.queryForList(
+                "SELECT typeof(id) || '|' || typeof(post_id) FROM comments WHERE id = unhex(replace(?, '-', ''))", String.class, comment.getId()));
+        assertEquals(List.of("blob"), jdbcTemplate.queryForList(
+                "SELECT typeof(post_id) FROM likes WHERE post_id = unhex(replace(?, '-', ''))", String.class, post.getId()));
+        assertEquals(List.of("binary"), jdbcTemplate.queryForList(
+                "SELECT value FROM storage_settings WHERE name = 'id_format'", String.class));
+        
+        PostResponse reloaded = postService.getPostById(post.getId()).orElseThrow();
+        assertEquals(post.getId(), reloaded.getId());
+        assertEquals(1, reloaded.getLikesCount());
+        assertEquals(1, reloaded.getCommentsCount());
+    }
+}
@@ -0,0 +1,49 @@
+package com.contoso.socialapp.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sqlite.SQLiteDataSource;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The gate must hand out no more connections than it has permits, and return
+ * exactly one permit per connection however often it is closed.
+ */
+class GatedDataSourceTests {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void boundsOpenConnections() throws Exception {
+        SQLiteDataSource sqlite = new SQLiteDataSource();
+        sqlite.setUrl("jdbc:sqlite:" + dir.resolve("gate.db"));
+        GatedDataSource gate = new GatedDataSource(sqlite, 2, Duration.ofMillis(50));
+        
+        Connection first = gate.getConnection();
+        Connection second = gate.getConnection();
+        assertEquals(0, gate.getAvailablePermits());
+        assertThrows(SQLTransientConnectionException.class, gate::getConnection);
+        
+        try (Statement statement = first.createStatement()) {
+            statement.execute("CREATE TABLE t (x INTEGER)");
+        }
+        first.close();
+        first.close();
+        assertEquals(1, gate.getAvailablePermits());
+        
+        try (Connection third = gate.getConnection()) {
+            assertEquals(0, gate.getAvailablePermits());
+        }
+        second.close();
+        assertEquals(2, gate.getAvailablePermits());
+    }
+}
@@ -0,0 +1,99 @@
+package com.contoso.socialapp.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * An existing database must survive switching {@code socialapp.storage.binary-ids}
+ * on and back off with every ID and every reference between rows intact. IDs
+ * that are not UUIDs stay text, even when they are 36 characters long.
+ */
+class IdFormatMigrationTests {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void convertsIdsToBinaryAndBack() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("ids.db");
+        migrate(url, false);
+        
+        String postId = UUID.randomUUID().toString();
+        String commentId = UUID.randomUUID().toString();
+        try (Connection con = DriverManager.getConnection(url);
+             Statement statement = con.createStatement()) {
+            statement.executeUpdate("INSERT INTO posts (id, username, content, created_at, updated_at) "
+                    + "VALUES ('" + postId + "', 'author', 'Hello', 0, 0), ('legacy-1', 'author', 'Old', 0, 0)");
+            statement.executeUpdate("INSERT INTO comments (id, post_id, username, content, created_at, updated_at) "
+                    + "VALUES ('" + commentId + "', '" + postId + "', 'fan', 'Hi', 0, 0)");
+            statement.executeUpdate("INSERT INTO likes (post_id, username, liked_at) "
+                    + "VALUES ('" + postId + "', 'fan', 0), ('legacy-1', 'fan', 0)");
+        }
+        
+        migrate(url, true);
+        assertEquals(List.of("blob", "text"), query(url, "SELECT typeof(id) FROM posts ORDER BY typeof(id)"));
+        assertEquals(List.of("blob"), query(url, "SELECT typeof(post_id) FROM comments"));
+        assertEquals(List.of("binary"), query(url, "SELECT value FROM storage_settings WHERE name = 'id_format'"));
+        // References still line up after the conversion
+        assertEquals(List.of("2"), query(url, "SELECT COUNT(*) FROM likes l JOIN posts p ON p.id = l.post_id"));
+        assertEquals(List.of("1"), query(url, "SELECT COUNT(*) FROM comments c JOIN posts p ON p.id = c.post_id"));
+        
+        migrate(url, false);
+        assertEquals(List.of(postId, "legacy-1"), query(url, "SELECT id FROM posts ORDER BY id = 'legacy-1'"));
+        assertEquals(List.of(commentId + "|" + postId), query(url, "SELECT id || '|' || post_id FROM comments"));
+        assertEquals(List.of("text"), query(url, "SELECT value FROM storage_settings WHERE name = 'id_format'"));
+    }
+    
+    @Test
+    void keepsUuidLengthIdsThatAreNotUuidsAsText() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("legacy.db");
+        migrate(url, false);
+        
+        // 36 characters each, but not hex, or not dashed where a UUID is
+        String notHex = "legacy-post-with-a-36-character-id!!";
+        String misplacedDashes = "0123456789ab-cdef-0123-4567-89abcdef";
+        try (Connection con = DriverManager.getConnection(url);
+             Statement statement = con.createStatement()) {
+            statement.executeUpdate("INSERT INTO posts (id, username, content, created_at, updated_at) "
+                    + "VALUES ('" + notHex + "', 'author', 'Old', 0, 0), ('" + misplacedDashes + "', 'author', 'Older', 0, 0)");
+            statement.executeUpdate("INSERT INTO likes (post_id, username, liked_at) VALUES ('" + notHex + "', 'fan', 0)");
+        }
+        
+        migrate(url, true);
+        assertEquals(List.of(misplacedDashes + "|text", notHex + "|text"), query(url, "SELECT id || '|' || typeof(id) FROM posts ORDER BY id"));
+        assertEquals(List.of("1"), query(url, "SELECT COUNT(*) FROM likes l JOIN posts p ON p.id = l.post_id"));
+    }
+    
+    private static void migrate(String url, boolean binary) {
+        Flyway.configure()
+                .dataSource(url, null, null)
+                .callbacks(new IdFormatMigration(binary))
+                .load()
+                .migrate();
+    }
+    
+    private static List<String> query(String url, String sql) throws Exception {
+        List<String> values = new ArrayList<>();
+        try (Connection con = DriverManager.getConnection(url);
+             PreparedStatement statement = con.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,71 @@
+package com.contoso.socialapp.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A shard file remembers the layout it was created under, and refuses to be
+ * opened with a different shard count or as a different shard.
+ */
+class ShardLayoutCheckTests {
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void refusesChangedShardLayout() throws Exception {
+        String url = "jdbc:sqlite:" + dir.resolve("shard-1.db");
+        migrate(url, 1, 4);
+        assertEquals(List.of("shard_count=4", "shard_index=1"), settings(url));
+        
+        // Reopening under the same layout is fine
+        migrate(url, 1, 4);
+        
+        assertRefused(() -> migrate(url, 1, 8));
+        assertRefused(() -> migrate(url, 2, 4));
+        assertEquals(List.of("shard_count=4", "shard_index=1"), settings(url));
+    }
+    
+    private static void assertRefused(Runnable migration) {
+        RuntimeException refused = assertThrows(RuntimeException.class, migration::run);
+        Throwable cause = refused;
+        while (!(cause instanceof IllegalStateException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        assertTrue(cause.getMessage().startsWith("Shard file"), refused.toString());
+    }
+    
+    private static void migrate(String url, int shard, int shardCount) {
+        Flyway.configure()
+                .dataSource(url, null, null)
+                .callbacks(new IdFormatMigration(false), new ShardLayoutCheck(shard, shardCount))
+                .load()
+                .migrate();
+    }
+    
+    private static List<String> settings(String url) throws Exception {
+        List<String> values = new ArrayList<>();
+        try (Connection con = DriverManager.getConnection(url);
+             PreparedStatement statement = con.prepareStatement(
+                     "SELECT name || '=' || value FROM storage_settings WHERE name LIKE 'shard%' ORDER BY name");
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
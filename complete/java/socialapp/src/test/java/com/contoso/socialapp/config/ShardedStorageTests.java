@@ -0,0 +1,124 @@
+package com.contoso.socialapp.config;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.service.CommentService;
+import com.contoso.socialapp.service.LikeService;
+import com.contoso.socialapp.service.PostService;
+import com.contoso.socialapp.service.ShardRouter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Posts and their children must land in the shard file picked by their ID,
+ * while the service API keeps behaving as if there were a single database.
+ */
+@SocialAppTest(properties = {
+        "socialapp.storage.shards.count=4",
+        // Keep the in-memory feed out of the way so pages come from the shards
+        "socialapp.feed.capacity=1"
+})
+@ActiveProfiles("sqlite-sharded")
+class ShardedStorageTests {
+    
+    private static final int POSTS = 60;
+    
+    @Value("${socialapp.storage.shards.path-pattern}")
+    private String pathPattern;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Test
+    void spreadsPostsAcrossShardsAndMergesTheFeed() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            ids.add(postService.createPost(new NewPostRequest("user" + i, "Post " + i)).getId());
+        }
+        
+        int total = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            List<String> stored = query(shard, "SELECT id FROM posts");
+            assertTrue(!stored.isEmpty(), "shard " + shard + " holds no posts");
+            for (String id : stored) {
+                assertEquals(shard, shardRouter.shardOf(id));
+            }
+            total += stored.size();
+        }
+        
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        postService.writeAllPosts(streamed);
+        List<PostResponse> all = objectMapper.readValue(streamed.toByteArray(), new TypeReference<List<PostResponse>>() { });
+        assertEquals(total, all.size());
+        assertTrue(ids.stream().allMatch(id -> all.stream().anyMatch(post -> post.getId().equals(id))));
+        List<PostResponse> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PostResponse> page = postService.getPosts(cursor, 7);
+            paged.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(all, paged);
+    }
+    
+    @Test
+    void keepsCommentsAndLikesWithTheirPost() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Sharded")).getId();
+        int shard = shardRouter.shardOf(postId);
+        
+        commentService.createComment(postId, new NewCommentRequest("fan", "Nice")).orElseThrow();
+        likeService.addLike(postId, new LikeRequest("fan")).orElseThrow();
+        
+        assertEquals(List.of(postId), query(shard, "SELECT post_id FROM comments"));
+        assertEquals(List.of(postId), query(shard, "SELECT post_id FROM likes"));
+        ByteArrayOutputStream comments = new ByteArrayOutputStream();
+        commentService.writeCommentsByPostId(postId, comments);
+        assertEquals(1, objectMapper.readValue(comments.toByteArray(), new TypeReference<List<CommentResponse>>() { }).size());
+        assertEquals(1, postService.getPostById(postId).orElseThrow().getLikesCount());
+        assertEquals(List.of(postId), likeService.getLikeStatus("fan", List.of(postId)).getLikedPostIds());
+    }
+    
+    private List<String> query(int shard, String sql) throws Exception {
+        List<String> values = new ArrayList<>();
+        try (Connection con = DriverManager.getConnection("jdbc:sqlite:" + String.format(pathPattern, shard));
+             PreparedStatement statement = con.prepareStatement(sql);
+             ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                values.add(rs.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,132 @@
+package com.contoso.socialapp.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures point-read throughput on the {@code sqlite-wal} storage layout as
+ * reader threads are added, while a writer keeps committing in the background.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class SqliteStorageBenchmarkTests {
+    
+    private static final int SEED_ROWS = 100_000;
+    private static final long PHASE_MILLIS = 3_000;
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void readThroughputScalesWithReadersWhileWriting() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        String url = "jdbc:sqlite:" + dir.resolve("bench.db");
+        
+        try (HikariDataSource writer = SqliteStorageConfig.sqlitePool("bench-writer", url, 1, false,
+                     SqliteStorageConfig.tunedPragmas(268_435_456L, 65_536, 5_000));
+             HikariDataSource readers = SqliteStorageConfig.sqlitePool("bench-reader", url, cores, true,
+                     SqliteStorageConfig.tunedPragmas(268_435_456L, 65_536, 5_000))) {
+            
+            List<String> ids = seed(writer);
+            
+            System.out.printf("%-8s %14s %14s%n", "readers", "reads/sec", "writes/sec");
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                AtomicLong writes = new AtomicLong();
+                AtomicBoolean running = new AtomicBoolean(true);
+                Thread writerThread = new Thread(() -> writeLoop(writer, running, writes));
+                writerThread.start();
+                
+                long reads = readPhase(readers, ids, threads);
+                
+                running.set(false);
+                writerThread.join();
+                double seconds = PHASE_MILLIS / 1000.0;
+                System.out.printf("%-8d %14.0f %14.0f%n", threads, reads / seconds, writes.get() / seconds);
+                assertTrue(writes.get() > 0, "writes must keep committing while readers run");
+            }
+        }
+    }
+    
+    private List<String> seed(HikariDataSource writer) throws Exception {
+        List<String> ids = new ArrayList<>(SEED_ROWS);
+        try (Connection con = writer.getConnection()) {
+            try (Statement ddl = con.createStatement()) {
+                ddl.execute("CREATE TABLE posts (id TEXT PRIMARY KEY, username TEXT NOT NULL, content TEXT NOT NULL)");
+            }
+            con.setAutoCommit(false);
+            try (PreparedStatement insert = con.prepareStatement("INSERT INTO posts (id, username, content) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < SEED_ROWS; i++) {
+                    String id = UUID.randomUUID().toString();
+                    ids.add(id);
+                    insert.setString(1, id);
+                    insert.setString(2, "user" + (i % 1000));
+                    insert.setString(3, "Seed post number " + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            con.commit();
+        }
+        return ids;
+    }
+    
+    private void writeLoop(HikariDataSource writer, AtomicBoolean running, AtomicLong writes) {
+        try (Connection con = writer.getConnection();
+             PreparedStatement insert = con.prepareStatement("INSERT INTO posts (id, username, content) VALUES (?, ?, ?)")) {
+            while (running.get()) {
+                insert.setString(1, UUID.randomUUID().toString());
+                insert.setString(2, "writer");
+                insert.setString(3, "Written during the read phase");
+                insert.executeUpdate();
+                writes.incrementAndGet();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private long readPhase(HikariDataSource readers, List<String> ids, int threads) throws InterruptedException {
+        AtomicLong reads = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(PHASE_MILLIS);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try (Connection con = readers.getConnection();
+                     PreparedStatement select = con.prepareStatement("SELECT username, content FROM posts WHERE id = ?")) {
+                    while (System.nanoTime() < deadline) {
+                        select.setString(1, ids.get(ThreadLocalRandom.current().nextInt(ids.size())));
+                        try (ResultSet rs = select.executeQuery()) {
+                            rs.next();
+                        }
+                        reads.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return reads.get();
+    }
+}
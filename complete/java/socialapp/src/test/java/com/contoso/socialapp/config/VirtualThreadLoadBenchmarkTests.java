@@ -0,0 +1,150 @@
+package com.contoso.socialapp.config;
+
+import com.contoso.socialapp.SocialAppApplication;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.service.PostService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares request latency with platform threads and with virtual threads
+ * while 5,000 clients each keep a connection busy, mostly reading posts and
+ * sometimes liking one. Both runs use the {@code sqlite-wal} storage layout.
+ * Run with {@code ./gradlew benchmark}; the client and server together need
+ * over 10,000 open files, so raise {@code ulimit -n} first.
+ */
+@Tag("benchmark")
+class VirtualThreadLoadBenchmarkTests {
+    
+    private static final int CONNECTIONS = 5_000;
+    private static final int POSTS = 1_000;
+    private static final int WRITE_PERCENT = 5;
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final Duration MEASURED = Duration.ofSeconds(15);
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void comparesTailLatencyWithPlatformThreads() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+        
+        System.out.printf("%-10s %12s %10s %10s %10s %10s%n", "threads", "requests/s", "p50 ms", "p99 ms", "max ms", "errors");
+        platform.print("platform");
+        virtual.print("virtual");
+        assertEquals(0, virtual.errors(), "virtual threads must serve every request");
+    }
+    
+    private Result run(boolean virtualThreads) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(SocialAppApplication.class)
+                .profiles("sqlite-wal")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "socialapp.storage.sqlite.path=" + dir.resolve(mode + ".db"),
+                        // Clients keep their connection for the whole run
+                        "server.tomcat.max-keep-alive-requests=-1",
+                        "socialapp.counters.reconcile-initial-delay=PT1H",
+                        "socialapp.feed.refresh-interval=PT1H",
+                        "socialapp.trending.rebuild-interval=PT1H")
+                .run()) {
+            PostService postService = app.getBean(PostService.class);
+            List<String> postIds = new ArrayList<>(POSTS);
+            for (int i = 0; i < POSTS; i++) {
+                postIds.add(postService.createPost(new NewPostRequest("author" + (i % 50), "Load test post " + i)).getId());
+            }
+            
+            String base = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            try (HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build()) {
+                load(http, base, postIds, WARMUP);
+                return load(http, base, postIds, MEASURED);
+            } finally {
+                clientExecutor.shutdownNow();
+            }
+        }
+    }
+    
+    private Result load(HttpClient http, String base, List<String> postIds, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Queue<long[]> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        
+        List<Thread> clients = new ArrayList<>(CONNECTIONS);
+        for (int c = 0; c < CONNECTIONS; c++) {
+            clients.add(Thread.ofVirtual().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long[] own = new long[256];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    String postId = postIds.get(random.nextInt(postIds.size()));
+                    HttpRequest request = random.nextInt(100) < WRITE_PERCENT
+                            ? HttpRequest.newBuilder(URI.create(base + "/api/posts/" + postId + "/likes"))
+                                    .header("Content-Type", "application/json")
+                                    .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user" + random.nextLong() + "\"}"))
+                                    .build()
+                            : HttpRequest.newBuilder(URI.create(base + "/api/posts/" + postId)).GET().build();
+                    long start = System.nanoTime();
+                    try {
+                        int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == own.length) {
+                        own = Arrays.copyOf(own, count * 2);
+                    }
+                    own[count++] = System.nanoTime() - start;
+                }
+                latencies.add(Arrays.copyOf(own, count));
+            }));
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all.length / (duration.toMillis() / 1000.0), millis(all, 0.50), millis(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1] / 1e6, errors.get());
+    }
+    
+    private static double millis(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+    
+    private record Result(double throughput, double p50, double p99, double max, long errors) {
+        
+        void print(String mode) {
+            System.out.printf("%-10s %12.0f %10.1f %10.1f %10.1f %10d%n", mode, throughput, p50, p99, max, errors);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.service.CommentService;
+import com.contoso.socialapp.service.LikeService;
+import com.contoso.socialapp.service.PostService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Posts, post pages and comment pages come from the response body cache,
+ * gzipped for clients that accept it, and never outlive a change to what they
+ * show.
+ */
+@SocialAppTest
+@AutoConfigureMockMvc
+class CachedResponseTests {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Test
+    void largePostsAreSentGzippedToClientsThatAcceptIt() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "x".repeat(2000))).getId();
+        String path = "/api/posts/" + postId;
+        
+        MockHttpServletResponse plain = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        
+        double hits = hits();
+        MockHttpServletResponse gzipped = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.ETAG, "W/" + plain.getHeader(HttpHeaders.ETAG)))
+                .andReturn().getResponse();
+        assertEquals(hits + 1, hits());
+        assertEquals(plain.getContentAsString(), gunzip(gzipped.getContentAsByteArray()));
+        assertTrue(gzipped.getContentAsByteArray().length < plain.getContentAsByteArray().length);
+        
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipped.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+    }
+    
+    @Test
+    void notModifiedStandsInForTheRepresentationAsked() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "y".repeat(2000))).getId();
+        String path = "/api/posts/" + postId;
+        String etag = mockMvc.perform(get(path)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        // Whichever form the client holds, the 304 describes the one it would now be sent
+        MockHttpServletResponse gzipped = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn().getResponse();
+        assertEquals(List.of("W/" + etag), gzipped.getHeaders(HttpHeaders.ETAG));
+        
+        MockHttpServletResponse plain = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+        assertEquals(List.of(etag), plain.getHeaders(HttpHeaders.ETAG));
+        
+        mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/" + etag))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+    }
+    
+    @Test
+    void cachedBodiesFollowChanges() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Cache me")).getId();
+        String path = "/api/posts/" + postId;
+        mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, not(hasItem(HttpHeaders.ACCEPT_ENCODING))));
+        
+        likeService.addLike(postId, new LikeRequest("fan"));
+        String liked = mockMvc.perform(get(path)).andReturn().getResponse().getContentAsString();
+        assertTrue(liked.contains("\"likesCount\":1"), liked);
+    }
+    
+    @Test
+    void feedPagesAreCachedUntilTheFeedChanges() throws Exception {
+        postService.createPost(new NewPostRequest("author", "Older"));
+        postService.createPost(new NewPostRequest("author", "Newer"));
+        
+        double hits = hits();
+        for (int request = 0; request < 2; request++) {
+            mockMvc.perform(get("/api/posts").param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(PageResponses.NEXT_CURSOR_HEADER));
+        }
+        assertEquals(hits + 1, hits());
+        
+        String before = mockMvc.perform(get("/api/posts").param("limit", "50"))
+                .andReturn().getResponse().getContentAsString();
+        String postId = postService.createPost(new NewPostRequest("author", "Newest")).getId();
+        String after = mockMvc.perform(get("/api/posts").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertNotEquals(before, after);
+        assertTrue(after.contains(postId), after);
+    }
+    
+    @Test
+    void commentPagesAreCachedUntilCommentsChange() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Discuss")).getId();
+        String first = commentService.createComment(postId, new NewCommentRequest("fan", "First")).orElseThrow().getId();
+        commentService.createComment(postId, new NewCommentRequest("other", "Second"));
+        String path = "/api/posts/" + postId + "/comments";
+        
+        double hits = hits();
+        String cursor = null;
+        for (int request = 0; request < 2; request++) {
+            cursor = mockMvc.perform(get(path).param("limit", "1"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(PageResponses.NEXT_CURSOR_HEADER);
+            mockMvc.perform(get(path).param("limit", "1").param("after", cursor))
+                    .andExpect(status().isOk());
+            mockMvc.perform(get(path).param("around", first))
+                    .andExpect(status().isOk());
+        }
+        assertEquals(hits + 3, hits(), "each page is rendered once per comments version");
+        
+        commentService.createComment(postId, new NewCommentRequest("late", "Third"));
+        // The second page was the last one until now
+        mockMvc.perform(get(path).param("limit", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(PageResponses.NEXT_CURSOR_HEADER));
+        String around = mockMvc.perform(get(path).param("around", first))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(around.contains("Third"), around);
+    }
+    
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "responses").tag("result", "hit").functionCounter().count();
+    }
+    
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.contoso.socialapp.controller;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.service.CommentService;
+import com.contoso.socialapp.service.LikeService;
+import com.contoso.socialapp.service.PostService;
+import com.contoso.socialapp.service.ResponseBodyCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Polling clients that send back the ETag they were given must get an empty
+ * 304 until the post or its comments change, and the new state right after.
+ * {@code If-None-Match} is compared weakly, may list several tags or
+ * {@code *}, and every response carries exactly one ETag. A 304 is answered
+ * before the body is rendered or cached.
+ */
+@SocialAppTest
+@AutoConfigureMockMvc
+class ConditionalGetTests {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+    
+    @Test
+    void postIsNotModifiedUntilItChanges() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Poll me")).getId();
+        String path = "/api/posts/" + postId;
+        
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=0, public, s-maxage=2"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        
+        likeService.addLike(postId, new LikeRequest("fan"));
+        String liked = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, liked);
+    }
+    
+    @Test
+    void ifNoneMatchIsComparedWeaklyAcrossTagLists() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Match me")).getId();
+        String path = "/api/posts/" + postId;
+        MockHttpServletResponse ok = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertEquals(1, ok.getHeaders(HttpHeaders.ETAG).size(), ok.getHeaders(HttpHeaders.ETAG).toString());
+        String etag = ok.getHeader(HttpHeaders.ETAG);
+        
+        for (String ifNoneMatch : List.of("W/" + etag, "\"stale\", " + etag, "\"a,b\",W/" + etag, "*")) {
+            MockHttpServletResponse notModified = mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                    .andExpect(status().isNotModified())
+                    .andReturn().getResponse();
+            assertEquals(List.of(etag), notModified.getHeaders(HttpHeaders.ETAG), ifNoneMatch);
+        }
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"stale\"").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        // A comma inside a quoted tag does not split it
+        String inner = etag.substring(1, etag.length() - 1);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"x," + inner + "\""))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    void notModifiedDoesNotFillTheBodyCache() throws Exception {
+        // Large enough to have a gzipped form, which the 304 must still describe
+        String postId = postService.createPost(new NewPostRequest("author", "z".repeat(2000))).getId();
+        String path = "/api/posts/" + postId;
+        String etag = mockMvc.perform(get(path)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        responseBodyCache.evictPost(postId);
+        
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        MockHttpServletResponse gzipped = mockMvc.perform(get(path).header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+                .andReturn().getResponse();
+        assertEquals(List.of("W/" + etag), gzipped.getHeaders(HttpHeaders.ETAG));
+        assertTrue(responseBodyCache.peek(ResponseBodyCache.postKey(postId), etag).isEmpty());
+        
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, "\"stale\""))
+                .andExpect(status().isOk());
+        assertTrue(responseBodyCache.peek(ResponseBodyCache.postKey(postId), etag).isPresent());
+    }
+    
+    @Test
+    void commentListsAreNotModifiedUntilACommentChanges() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Discuss")).getId();
+        commentService.createComment(postId, new NewCommentRequest("fan", "First"));
+        String path = "/api/posts/" + postId + "/comments";
+        
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        MockHttpServletResponse streamed = mockMvc.perform(get(path).param("unpaged", "true").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""))
+                .andReturn().getResponse();
+        assertEquals(List.of(etag), streamed.getHeaders(HttpHeaders.ETAG));
+        
+        commentService.createComment(postId, new NewCommentRequest("other", "Second"));
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(path).param("unpaged", "true").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        
+        mockMvc.perform(get("/api/posts/missing/comments").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,86 @@
+package com.contoso.socialapp.entity;
+
+import com.contoso.socialapp.config.SqliteStorageConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Inserts 10M posts keyed by random (uuid2) and by time-ordered (version 7)
+ * IDs and reports insert throughput per million rows and the final database
+ * size. Random keys slow down as the primary key index outgrows the page cache;
+ * time-ordered keys keep appending to the same few pages.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class TimeOrderedIdBenchmarkTests {
+    
+    private static final int ROWS = 10_000_000;
+    private static final int BATCH = 10_000;
+    private static final int REPORT_EVERY = 1_000_000;
+    
+    @TempDir
+    Path dir;
+    
+    @Test
+    void timeOrderedIdsInsertFasterThanRandomIds() throws Exception {
+        double random = insertAll("random", () -> UUID.randomUUID().toString());
+        double timeOrdered = insertAll("time-ordered", () -> TimeOrderedIdGenerator.next().toString());
+        
+        System.out.printf("%-14s %14.0f rows/sec overall%n", "random", random);
+        System.out.printf("%-14s %14.0f rows/sec overall%n", "time-ordered", timeOrdered);
+        assertTrue(timeOrdered > random, "time-ordered IDs should insert faster than random ones");
+    }
+    
+    private double insertAll(String name, Supplier<String> ids) throws Exception {
+        Path file = dir.resolve(name + ".db");
+        String url = "jdbc:sqlite:" + file;
+        try (HikariDataSource writer = SqliteStorageConfig.sqlitePool("bench-" + name, url, 1, false,
+                SqliteStorageConfig.tunedPragmas(268_435_456L, 65_536, 5_000))) {
+            Flyway.configure().dataSource(writer).load().migrate();
+            
+            long start = System.nanoTime();
+            long windowStart = start;
+            try (Connection con = writer.getConnection();
+                 PreparedStatement insert = con.prepareStatement("INSERT INTO posts "
+                         + "(id, username, content, created_at, updated_at, likes_count, comments_count) "
+                         + "VALUES (?, ?, ?, ?, ?, 0, 0)")) {
+                con.setAutoCommit(false);
+                for (int row = 1; row <= ROWS; row++) {
+                    Timestamp now = new Timestamp(System.currentTimeMillis());
+                    insert.setString(1, ids.get());
+                    insert.setString(2, "user" + (row % 1_000));
+                    insert.setString(3, "Benchmark post " + row);
+                    insert.setTimestamp(4, now);
+                    insert.setTimestamp(5, now);
+                    insert.addBatch();
+                    if (row % BATCH == 0) {
+                        insert.executeBatch();
+                        con.commit();
+                    }
+                    if (row % REPORT_EVERY == 0) {
+                        long end = System.nanoTime();
+                        System.out.printf("%-14s rows %,11d %14.0f rows/sec%n", name, row,
+                                REPORT_EVERY / ((end - windowStart) / 1e9));
+                        windowStart = end;
+                    }
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%-14s database size %,d MiB%n", name, Files.size(file) / (1024 * 1024));
+            return ROWS / seconds;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.contoso.socialapp.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedIdGeneratorTests {
+    
+    @Test
+    void idsAreVersion7WithCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = TimeOrderedIdGenerator.next();
+        long after = System.currentTimeMillis();
+        
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        long millis = id.getMostSignificantBits() >>> 16;
+        assertTrue(millis >= before && millis <= after + 1, "timestamp " + millis + " outside " + before + ".." + after);
+    }
+    
+    @Test
+    void idsFromOneThreadStrictlyIncreaseAsStrings() {
+        String previous = TimeOrderedIdGenerator.next().toString();
+        for (int i = 0; i < 200_000; i++) {
+            String next = TimeOrderedIdGenerator.next().toString();
+            assertTrue(next.compareTo(previous) > 0, next + " does not sort after " + previous);
+            previous = next;
+        }
+    }
+    
+    @Test
+    void idsFromSuccessiveVirtualThreadsStrictlyIncrease() throws Exception {
+        // One virtual thread per ID, as with one virtual thread per request
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            String previous = TimeOrderedIdGenerator.next().toString();
+            for (int i = 0; i < 20_000; i++) {
+                String next = executor.submit(() -> TimeOrderedIdGenerator.next().toString()).get();
+                assertTrue(next.compareTo(previous) > 0, next + " does not sort after " + previous);
+                previous = next;
+            }
+        }
+    }
+    
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> batches = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                batches.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(TimeOrderedIdGenerator.next());
+                    }
+                    return ids;
+                }));
+            }
+            
+            Set<UUID> unique = new HashSet<>();
+            for (Future<List<UUID>> batch : batches) {
+                unique.addAll(batch.get());
+            }
+            assertEquals(threads * perThread, unique.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
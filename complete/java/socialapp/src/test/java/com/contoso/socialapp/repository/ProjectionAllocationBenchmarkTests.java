@@ -0,0 +1,158 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.entity.Comment;
+import com.contoso.socialapp.entity.Post;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares bytes allocated per read between loading entities and copying them
+ * into response DTOs, and selecting straight into the DTOs with the projection
+ * queries. Both paths run in the same read-only transaction a request would use.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SocialAppTest
+// Each benchmark seeds a database of its own, dropped with the context afterwards
+@DirtiesContext
+class ProjectionAllocationBenchmarkTests {
+    
+    private static final int SEED_POSTS = 1_000;
+    private static final int SEED_COMMENTS = 200;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private CommentRepository commentRepository;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate readOnly;
+    private String busyPostId;
+    private long consumed;
+    
+    @BeforeEach
+    void seed() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        jdbcTemplate.update("DELETE FROM comments");
+        jdbcTemplate.update("DELETE FROM likes");
+        jdbcTemplate.update("DELETE FROM posts");
+        
+        LocalDateTime start = LocalDateTime.now().minusDays(1);
+        List<Object[]> posts = new ArrayList<>(SEED_POSTS);
+        for (int i = 0; i < SEED_POSTS; i++) {
+            Timestamp at = Timestamp.valueOf(start.plusSeconds(i));
+            posts.add(new Object[]{UUID.randomUUID().toString(), "user" + (i % 50), "Post body " + i, at, at, i % 17, 0});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO posts (id, username, content, created_at, updated_at, likes_count, comments_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", posts);
+        busyPostId = (String) posts.get(SEED_POSTS - 1)[0];
+        
+        List<Object[]> comments = new ArrayList<>(SEED_COMMENTS);
+        for (int i = 0; i < SEED_COMMENTS; i++) {
+            Timestamp at = Timestamp.valueOf(start.plusSeconds(SEED_POSTS + i));
+            comments.add(new Object[]{UUID.randomUUID().toString(), busyPostId, "user" + (i % 50), "Comment " + i, at, at});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO comments (id, post_id, username, content, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", comments);
+        jdbcTemplate.update("UPDATE posts SET comments_count = ? WHERE id = ?", SEED_COMMENTS, busyPostId);
+    }
+    
+    @Test
+    void projectionsAllocateLessThanEntities() {
+        System.out.printf("%-22s %16s %16s%n", "read", "entity B/req", "projection B/req");
+        
+        long feedEntity = bytesPerRead(() -> entityManager
+                .createQuery("SELECT p FROM Post p ORDER BY p.createdAt DESC, p.id ASC", Post.class)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList()
+                .stream()
+                .map(ProjectionAllocationBenchmarkTests::toResponse)
+                .toList());
+        long feedProjection = bytesPerRead(() -> postRepository.findFeedPage(PageRequest.ofSize(PAGE_SIZE)));
+        report("feed page", feedEntity, feedProjection);
+        
+        long postEntity = bytesPerRead(() -> postRepository.findById(busyPostId)
+                .map(ProjectionAllocationBenchmarkTests::toResponse)
+                .stream()
+                .toList());
+        long postProjection = bytesPerRead(() -> postRepository.findResponseById(busyPostId).stream().toList());
+        report("single post", postEntity, postProjection);
+        
+        long commentsEntity = bytesPerRead(() -> entityManager
+                .createQuery("SELECT c FROM Comment c WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC", Comment.class)
+                .setParameter("postId", busyPostId)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList()
+                .stream()
+                .map(ProjectionAllocationBenchmarkTests::toResponse)
+                .toList());
+        long commentsProjection = bytesPerRead(() -> commentRepository.findPageByPostId(busyPostId, PageRequest.ofSize(PAGE_SIZE)));
+        report("comment page", commentsEntity, commentsProjection);
+        
+        assertTrue(consumed > 0);
+        assertTrue(feedProjection < feedEntity, "feed projection should allocate less than loading entities");
+        assertTrue(commentsProjection < commentsEntity, "comment projection should allocate less than loading entities");
+    }
+    
+    private long bytesPerRead(Supplier<List<?>> read) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            consumed += readOnly.execute(status -> read.get()).size();
+        }
+        
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            consumed += readOnly.execute(status -> read.get()).size();
+        }
+        return (threads.getCurrentThreadAllocatedBytes() - before) / MEASURED_ITERATIONS;
+    }
+    
+    private static void report(String read, long entityBytes, long projectionBytes) {
+        System.out.printf("%-22s %16d %16d%n", read, entityBytes, projectionBytes);
+    }
+    
+    private static PostResponse toResponse(Post post) {
+        return new PostResponse(post.getId(), post.getUsername(), post.getContent(), post.getCreatedAt(),
+                post.getUpdatedAt(), post.getLikesCount(), post.getCommentsCount());
+    }
+    
+    private static CommentResponse toResponse(Comment comment) {
+        return new CommentResponse(comment.getId(), comment.getPostId(), comment.getUsername(), comment.getContent(),
+                comment.getCreatedAt(), comment.getUpdatedAt());
+    }
+}
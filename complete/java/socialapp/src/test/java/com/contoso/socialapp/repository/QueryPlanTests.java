@@ -0,0 +1,176 @@
+package com.contoso.socialapp.repository;
+
+import com.contoso.socialapp.SocialAppTest;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the SQL Hibernate generates for the hot repository methods is
+ * served by the indexes defined in the Flyway migrations rather than by table
+ * scans or temporary sorts. Each method is called for real, with its
+ * statements captured by a {@link StatementInspector}, and every captured
+ * statement is run through {@code EXPLAIN QUERY PLAN}. Aggregating queries
+ * may group their rows in a temporary B-tree, but must still find them
+ * through an index.
+ */
+@SocialAppTest(properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.contoso.socialapp.repository.QueryPlanTests$CapturedStatements")
+class QueryPlanTests {
+    
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN \\w+$");
+    private static final String POST_ID = UUID.randomUUID().toString();
+    private static final String COMMENT_ID = UUID.randomUUID().toString();
+    private static final LocalDateTime AT = LocalDateTime.now();
+    private static final Pageable PAGE = PageRequest.ofSize(20);
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private CommentRepository commentRepository;
+    
+    @Autowired
+    private LikeRepository likeRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    static Stream<Arguments> hotQueries() {
+        return Stream.of(
+                hot("PostRepository.findById", t -> t.postRepository.findById(POST_ID)),
+                hot("PostRepository.findResponseById", t -> t.postRepository.findResponseById(POST_ID)),
+                hot("PostRepository.streamAll", t -> t.postRepository.streamAll().close()),
+                hot("PostRepository.findFeedPage", t -> t.postRepository.findFeedPage(PAGE)),
+                hot("PostRepository.findFeedPageAfter", t -> t.postRepository.findFeedPageAfter(AT, POST_ID, PAGE)),
+                hot("PostRepository.findPageByUsername", t -> t.postRepository.findPageByUsername("alice", PAGE)),
+                hot("PostRepository.findPageByUsernameAfter", t -> t.postRepository.findPageByUsernameAfter("alice", AT, POST_ID, PAGE)),
+                hot("PostRepository.findCreatedBefore", t -> t.postRepository.findCreatedBefore(AT, PAGE)),
+                hot("PostRepository.existsById", t -> t.postRepository.existsById(POST_ID)),
+                hot("PostRepository.updateContent", t -> t.postRepository.updateContent(POST_ID, "alice", "Edited", AT)),
+                hot("PostRepository.bumpCommentsVersion", t -> t.postRepository.bumpCommentsVersion(POST_ID)),
+                hot("PostRepository.findCommentsVersion", t -> t.postRepository.findCommentsVersion(POST_ID)),
+                hot("PostRepository.deletePostById", t -> t.postRepository.deletePostById(POST_ID)),
+                hot("CommentRepository.streamByPostId", t -> t.commentRepository.streamByPostId(POST_ID).close()),
+                hot("CommentRepository.findPageByPostId", t -> t.commentRepository.findPageByPostId(POST_ID, PAGE)),
+                hot("CommentRepository.findPageByPostIdAfter", t -> t.commentRepository.findPageByPostIdAfter(POST_ID, AT, COMMENT_ID, PAGE)),
+                hot("CommentRepository.findPageByPostIdBefore", t -> t.commentRepository.findPageByPostIdBefore(POST_ID, AT, COMMENT_ID, PAGE)),
+                hot("CommentRepository.findResponseByIdAndPostId", t -> t.commentRepository.findResponseByIdAndPostId(COMMENT_ID, POST_ID)),
+                hot("CommentRepository.findByIdAndPostId", t -> t.commentRepository.findByIdAndPostId(COMMENT_ID, POST_ID)),
+                hot("CommentRepository.deleteAllByPostId", t -> t.commentRepository.deleteAllByPostId(POST_ID)),
+                hot("LikeRepository.findByPostIdAndUsername", t -> t.likeRepository.findByPostIdAndUsername(POST_ID, "alice")),
+                hot("LikeRepository.findResponsesByPostId", t -> t.likeRepository.findResponsesByPostId(POST_ID)),
+                hot("LikeRepository.findLikedPostIds", t -> t.likeRepository.findLikedPostIds("alice",
+                        List.of(POST_ID, UUID.randomUUID().toString(), UUID.randomUUID().toString()))),
+                hot("LikeRepository.insertIfAbsent", t -> t.likeRepository.insertIfAbsent(POST_ID, "alice", AT)),
+                hot("LikeRepository.deleteAllByPostId", t -> t.likeRepository.deleteAllByPostId(POST_ID)),
+                hot("LikeRepository.deleteByPostIdAndUsername", t -> t.likeRepository.deleteByPostIdAndUsername(POST_ID, "alice")),
+                grouped("LikeRepository.countLikesBetween", t -> t.likeRepository.countLikesBetween(AT.minusHours(1), AT)),
+                grouped("CommentRepository.countCommentsBetween", t -> t.commentRepository.countCommentsBetween(AT.minusHours(1), AT))
+        );
+    }
+    
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQueryAvoidsFullScans(String query, Consumer<QueryPlanTests> call, boolean grouped) {
+        List<String> statements = capture(call);
+        assertFalse(statements.isEmpty(), query + " ran no SQL");
+        for (String sql : statements) {
+            List<String> steps = explain(sql);
+            for (String step : steps) {
+                assertFalse(FULL_SCAN.matcher(step).matches(), query + " scans a whole table: " + step + "\n" + sql);
+                if (!(grouped && step.equals("USE TEMP B-TREE FOR GROUP BY"))) {
+                    assertFalse(step.startsWith("USE TEMP B-TREE"), query + " sorts outside an index: " + step + "\n" + sql);
+                }
+            }
+            if (grouped) {
+                assertTrue(steps.stream().anyMatch(step -> step.startsWith("SEARCH")), query + " does not seek an index: " + steps + "\n" + sql);
+            }
+        }
+    }
+    
+    // Plain JDBC never reaches the statement inspector, so these statements are explained as written
+    @Test
+    void counterUpdatesSeekThePost() {
+        for (String sql : List.of(PostCounterRepository.ADJUST_LIKES, PostCounterRepository.ADJUST_COMMENTS)) {
+            List<String> steps = explain(sql);
+            assertTrue(steps.stream().allMatch(step -> step.startsWith("SEARCH posts")), steps + "\n" + sql);
+        }
+    }
+    
+    private static Arguments hot(String query, Consumer<QueryPlanTests> call) {
+        return Arguments.of(query, call, false);
+    }
+    
+    private static Arguments grouped(String query, Consumer<QueryPlanTests> call) {
+        return Arguments.of(query, call, true);
+    }
+    
+    // Runs the call in a transaction that is rolled back, so writes leave nothing behind
+    private List<String> capture(Consumer<QueryPlanTests> call) {
+        List<String> statements = CapturedStatements.start();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                call.accept(this);
+            });
+        } finally {
+            CapturedStatements.stop();
+        }
+        return statements;
+    }
+    
+    private List<String> explain(String sql) {
+        return jdbcTemplate.query("EXPLAIN QUERY PLAN " + sql, (rs, row) -> rs.getString("detail"));
+    }
+    
+    /**
+     * Records the statements Hibernate prepares on the test thread while a
+     * capture is running; Hibernate instantiates it from the property above.
+     */
+    public static class CapturedStatements implements StatementInspector {
+        
+        private static final ThreadLocal<List<String>> CAPTURED = new ThreadLocal<>();
+        
+        static List<String> start() {
+            List<String> statements = new ArrayList<>();
+            CAPTURED.set(statements);
+            return statements;
+        }
+        
+        static void stop() {
+            CAPTURED.remove();
+        }
+        
+        @Override
+        public String inspect(String sql) {
+            List<String> captured = CAPTURED.get();
+            if (captured != null) {
+                captured.add(sql);
+            }
+            return sql;
+        }
+    }
+}
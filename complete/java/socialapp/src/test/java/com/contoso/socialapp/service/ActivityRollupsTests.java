@@ -0,0 +1,107 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.StatsResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stats are folded from activity events into rollups, so they must agree with
+ * what was written whether or not the buffered counts have been flushed yet.
+ */
+@SocialAppTest
+class ActivityRollupsTests {
+    
+    @Autowired
+    private StatsService statsService;
+    
+    @Autowired
+    private ActivityRollups activityRollups;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Test
+    void countsActivityBeforeAndAfterFlush() {
+        StatsResponse before = statsService.getStats(null, null);
+        
+        String postId = postService.createPost(new NewPostRequest("author", "Count me")).getId();
+        // Likers no other test uses, as the unique liker count spans the whole database
+        String fan = "fan-" + postId;
+        String other = "other-" + postId;
+        likeService.addLike(postId, new LikeRequest(fan));
+        likeService.addLike(postId, new LikeRequest(other));
+        likeService.removeLike(postId, other);
+        likeService.addLike(postId, new LikeRequest(other));
+        commentService.createComment(postId, new NewCommentRequest(fan, "Nice"));
+        
+        StatsResponse pending = statsService.getStats(null, null);
+        assertEquals(before.getPosts() + 1, pending.getPosts());
+        assertEquals(before.getLikes() + 3, pending.getLikes(), "every like counts, removals are not subtracted");
+        assertEquals(before.getComments() + 1, pending.getComments());
+        assertEquals(before.getUniqueLikers() + 2, pending.getUniqueLikers());
+        
+        activityRollups.flush();
+        StatsResponse flushed = statsService.getStats(null, null);
+        assertEquals(pending.getPosts(), flushed.getPosts());
+        assertEquals(pending.getLikes(), flushed.getLikes());
+        assertEquals(pending.getComments(), flushed.getComments());
+        assertEquals(pending.getUniqueLikers(), flushed.getUniqueLikers());
+        assertEquals(pending.getHours(), flushed.getHours());
+        
+        // A second flush adds to the stored rows rather than replacing them
+        likeService.addLike(postId, new LikeRequest("third-" + postId));
+        activityRollups.flush();
+        StatsResponse again = statsService.getStats(null, null);
+        assertEquals(flushed.getLikes() + 1, again.getLikes());
+        assertEquals(flushed.getUniqueLikers() + 1, again.getUniqueLikers());
+    }
+    
+    @Test
+    void rejectsInvalidRanges() {
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(RuntimeException.class, () -> statsService.getStats(now, now.minusHours(1)));
+        assertThrows(RuntimeException.class, () -> statsService.getStats(now.minusDays(40), now));
+    }
+    
+    @Test
+    void sketchEstimatesDistinctCountsAndMergesAsUnion() {
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        for (int i = 0; i < 60_000; i++) {
+            monday.add("user-" + i);
+            // Repeats do not change the estimate
+            monday.add("user-" + i);
+        }
+        for (int i = 40_000; i < 100_000; i++) {
+            tuesday.add("user-" + i);
+        }
+        assertWithin(60_000, monday.estimate());
+        assertWithin(60_000, tuesday.estimate());
+        
+        HyperLogLog both = HyperLogLog.fromBytes(monday.toBytes());
+        both.merge(tuesday);
+        assertWithin(100_000, both.estimate());
+    }
+    
+    private static void assertWithin(long expected, long estimate) {
+        // Five standard errors, so the deterministic hash never makes this flaky
+        assertTrue(Math.abs(estimate - expected) < expected * 0.08,
+                "estimated " + estimate + " for " + expected);
+    }
+}
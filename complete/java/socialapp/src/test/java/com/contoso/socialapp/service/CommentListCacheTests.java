@@ -0,0 +1,72 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.UpdateCommentRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every comment change bumps the post's comments version, so a cached list is
+ * reused until the next change and never served after it.
+ */
+@SocialAppTest
+class CommentListCacheTests {
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Test
+    void servesCachedListUntilCommentsChange() throws Exception {
+        String postId = postService.createPost(new NewPostRequest("author", "Discuss")).getId();
+        CommentResponse first = commentService.createComment(postId, new NewCommentRequest("fan", "First")).orElseThrow();
+        
+        assertEquals(List.of("First"), contents(postId));
+        double hits = hits();
+        assertEquals(List.of("First"), contents(postId));
+        assertEquals(hits + 1, hits(), "an unchanged list is served from the cache");
+        
+        commentService.createComment(postId, new NewCommentRequest("other", "Second"));
+        assertEquals(List.of("First", "Second"), contents(postId));
+        
+        commentService.updateComment(postId, first.getId(), new UpdateCommentRequest("fan", "First, edited"));
+        assertEquals(List.of("First, edited", "Second"), contents(postId));
+        
+        commentService.deleteComment(postId, first.getId());
+        assertEquals(List.of("Second"), contents(postId));
+        
+        assertTrue(meterRegistry.get("cache.memory").tag("cache", "comments").gauge().value() > 0);
+    }
+    
+    // Sorted, as comments created within the same millisecond may come back in either order
+    private List<String> contents(String postId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        commentService.writeCommentsByPostId(postId, out);
+        List<CommentResponse> comments = objectMapper.readValue(out.toByteArray(), new TypeReference<List<CommentResponse>>() { });
+        return comments.stream().map(CommentResponse::getContent).sorted().toList();
+    }
+    
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "comments").tag("result", "hit").functionCounter().count();
+    }
+}
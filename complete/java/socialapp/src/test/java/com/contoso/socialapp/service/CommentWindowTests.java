@@ -0,0 +1,123 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PageCursor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Windows before and around a comment are cut from the same (createdAt, id)
+ * order as forward pages, are clipped rather than shifted at either end of the
+ * thread, and only hand out a cursor where more comments follow.
+ */
+@SocialAppTest
+class CommentWindowTests {
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    private String postId;
+    // The thread, oldest first
+    private List<String> ids;
+    
+    @BeforeEach
+    void createThread() {
+        postId = postService.createPost(new NewPostRequest("author", "Thread")).getId();
+        for (int i = 0; i < 9; i++) {
+            commentService.createComment(postId, new NewCommentRequest("fan" + i, "Comment " + i));
+        }
+        ids = ids(commentService.getCommentsAfter(postId, null, CursorPage.MAX_LIMIT));
+        assertEquals(9, ids.size());
+    }
+    
+    @Test
+    void windowAroundFirstCommentIsClipped() {
+        // Even limits put the extra comment after the anchor
+        CursorPage<CommentResponse> even = around(0, 4);
+        assertEquals(ids.subList(0, 3), ids(even));
+        assertNull(even.getPrevCursor());
+        assertNotNull(even.getNextCursor());
+        
+        CursorPage<CommentResponse> odd = around(0, 5);
+        assertEquals(ids.subList(0, 3), ids(odd));
+        assertNull(odd.getPrevCursor());
+        assertNotNull(odd.getNextCursor());
+    }
+    
+    @Test
+    void windowAroundLastCommentIsClipped() {
+        CursorPage<CommentResponse> even = around(8, 4);
+        assertEquals(ids.subList(7, 9), ids(even));
+        assertNotNull(even.getPrevCursor());
+        assertNull(even.getNextCursor());
+        
+        CursorPage<CommentResponse> odd = around(8, 5);
+        assertEquals(ids.subList(6, 9), ids(odd));
+        assertNotNull(odd.getPrevCursor());
+        assertNull(odd.getNextCursor());
+    }
+    
+    @Test
+    void windowAroundMiddleCommentIsCentred() {
+        assertEquals(ids.subList(3, 7), ids(around(4, 4)));
+        assertEquals(ids.subList(2, 7), ids(around(4, 5)));
+        assertEquals(List.of(ids.get(4)), ids(around(4, 1)));
+        
+        // A window touching either end of the thread has no cursor on that side
+        CursorPage<CommentResponse> whole = around(4, 9);
+        assertEquals(ids, ids(whole));
+        assertNull(whole.getPrevCursor());
+        assertNull(whole.getNextCursor());
+    }
+    
+    @Test
+    void pagesBackwardsToThreadStart() {
+        CursorPage<CommentResponse> page = before(7, 3);
+        assertEquals(ids.subList(4, 7), ids(page));
+        page = commentService.getCommentsBefore(postId, page.getPrevCursor(), 3);
+        assertEquals(ids.subList(1, 4), ids(page));
+        page = commentService.getCommentsBefore(postId, page.getPrevCursor(), 3);
+        assertEquals(ids.subList(0, 1), ids(page));
+        assertNull(page.getPrevCursor());
+        
+        // A page that ends exactly at the first comment has nothing before it
+        CursorPage<CommentResponse> exact = before(2, 2);
+        assertEquals(ids.subList(0, 2), ids(exact));
+        assertNull(exact.getPrevCursor());
+        // ... and its next cursor continues at the comment it was taken before
+        assertEquals(ids.subList(2, 3), ids(commentService.getCommentsAfter(postId, exact.getNextCursor(), 1)));
+        
+        CursorPage<CommentResponse> none = before(0, 2);
+        assertEquals(List.of(), none.getItems());
+        assertNull(none.getPrevCursor());
+        assertNull(none.getNextCursor());
+    }
+    
+    private CursorPage<CommentResponse> around(int index, int limit) {
+        return commentService.getCommentsAround(postId, ids.get(index), limit).orElseThrow();
+    }
+    
+    private CursorPage<CommentResponse> before(int index, int limit) {
+        CommentResponse anchor = commentService.getCommentById(postId, ids.get(index)).orElseThrow();
+        String cursor = new PageCursor(anchor.getCreatedAt(), anchor.getId()).encode();
+        return commentService.getCommentsBefore(postId, cursor, limit);
+    }
+    
+    private static List<String> ids(CursorPage<CommentResponse> page) {
+        return page.getItems().stream().map(CommentResponse::getId).toList();
+    }
+}
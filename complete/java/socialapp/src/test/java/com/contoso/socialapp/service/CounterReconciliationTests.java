@@ -0,0 +1,67 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.repository.PostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counters that have drifted from the likes and comments tables are put back,
+ * and counters that agree with them are left alone.
+ */
+@SocialAppTest
+class CounterReconciliationTests {
+    
+    @Autowired
+    private CounterReconciliationJob counterReconciliationJob;
+    
+    @Autowired
+    private PostRepository postRepository;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void repairsDriftedCounters() {
+        String drifted = postService.createPost(new NewPostRequest("author", "Drifted")).getId();
+        likeService.addLike(drifted, new LikeRequest("fan"));
+        likeService.addLike(drifted, new LikeRequest("other"));
+        commentService.createComment(drifted, new NewCommentRequest("fan", "Nice"));
+        String consistent = postService.createPost(new NewPostRequest("author", "Consistent")).getId();
+        likeService.addLike(consistent, new LikeRequest("fan"));
+        
+        jdbcTemplate.update("UPDATE posts SET likes_count = 7, comments_count = -1 WHERE id = ?", drifted);
+        counterReconciliationJob.reconcile();
+        
+        assertEquals(2, counter(drifted, "likes_count"));
+        assertEquals(1, counter(drifted, "comments_count"));
+        assertEquals(1, counter(consistent, "likes_count"));
+        assertEquals(0, counter(consistent, "comments_count"));
+        // Nothing has drifted any more, so a second pass updates no rows
+        assertEquals(List.of(0), shardRouter.writeEachShard(postRepository::reconcileCounters));
+    }
+    
+    private int counter(String postId, String column) {
+        return jdbcTemplate.queryForObject("SELECT " + column + " FROM posts WHERE id = ?", Integer.class, postId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.PageCursor;
+import com.contoso.socialapp.dto.PostResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Posts created at the same instant are ordered by ID, so paging through them
+ * with a cursor neither repeats nor skips any, whether pages come from the
+ * database or from the in-memory home feed.
+ */
+@SocialAppTest(properties = {
+        // Keep the in-memory feed out of the way so pages come from the database
+        "socialapp.feed.capacity=1"
+})
+class FeedPagingTests {
+    
+    // Newer than anything other tests create, so these posts open the feed
+    private static final LocalDateTime SAME_INSTANT = LocalDateTime.of(2100, 1, 1, 12, 0);
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void pagesDatabaseFeedAcrossEqualTimestamps() {
+        List<String> ids = new ArrayList<>();
+        Timestamp at = Timestamp.valueOf(SAME_INSTANT);
+        for (int i = 0; i < 7; i++) {
+            String postId = UUID.randomUUID().toString();
+            jdbcTemplate.update("INSERT INTO posts (id, username, content, created_at, updated_at, likes_count, comments_count) "
+                    + "VALUES (?, ?, ?, ?, ?, 0, 0)", postId, "tied", "Post " + i, at, at);
+            ids.add(postId);
+        }
+        // Rows inserted behind the services' back reach the home feed with the next refresh
+        postService.refreshHomeFeed();
+        
+        List<String> seen = pageThrough(ids.size(), (cursor, limit) -> postService.getPosts(cursor, limit));
+        assertEquals(ids.stream().sorted().toList(), seen);
+    }
+    
+    @Test
+    void pagesHomeFeedAcrossEqualTimestamps() {
+        List<PostResponse> posts = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            posts.add(new PostResponse(UUID.randomUUID().toString(), "tied", "Post " + i, SAME_INSTANT, SAME_INSTANT, 0, 0));
+        }
+        List<PostResponse> newestFirst = posts.stream()
+                .sorted(Comparator.comparing(PostResponse::getId))
+                .toList();
+        HomeFeed homeFeed = new HomeFeed(newestFirst.size());
+        homeFeed.replace(newestFirst, true);
+        
+        List<String> seen = pageThrough(newestFirst.size(), (cursor, limit) -> homeFeed
+                .page(cursor == null ? null : PageCursor.decode(cursor), limit)
+                .orElseThrow());
+        assertEquals(newestFirst.stream().map(PostResponse::getId).toList(), seen);
+    }
+    
+    // Collects the IDs of the first count posts, two per page
+    private static List<String> pageThrough(int count, BiFunction<String, Integer, CursorPage<PostResponse>> pages) {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PostResponse> page = pages.apply(cursor, 2);
+            page.getItems().forEach(post -> seen.add(post.getId()));
+            cursor = Optional.ofNullable(page.getNextCursor()).filter(next -> seen.size() < count).orElse(null);
+        } while (cursor != null);
+        return seen.subList(0, Math.min(count, seen.size()));
+    }
+}
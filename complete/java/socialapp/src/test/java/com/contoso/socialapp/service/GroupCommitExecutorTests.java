@@ -0,0 +1,176 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Concurrent writes share one transaction, a failing write only fails its own
+ * caller, and no caller is left waiting once the writer thread has stopped.
+ */
+@SocialAppTest
+class GroupCommitExecutorTests {
+    
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ShardRouter shardRouter;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    // Tells transactions apart: each one binds an EntityManager of its own
+    private final Set<Object> transactions = ConcurrentHashMap.newKeySet();
+    // Filled after commit, so writes of a rolled-back batch never show up here
+    private final Queue<String> committed = new ConcurrentLinkedQueue<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private GroupCommitExecutor executor;
+    
+    @AfterEach
+    void stopExecutor() throws InterruptedException {
+        callers.shutdownNow();
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+    
+    @Test
+    void batchesConcurrentWritesIntoOneTransaction() throws Exception {
+        // A batch only closes early once it is full
+        executor = start(8, Duration.ofSeconds(5));
+        
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(submit(record("write-" + i)));
+        }
+        for (int i = 0; i < 8; i++) {
+            assertEquals("write-" + i, results.get(i).get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        }
+        assertEquals(1, transactions.size());
+        assertEquals(8, committed.size());
+    }
+    
+    @Test
+    void replaysFailedBatchWriteByWrite() throws Exception {
+        executor = start(3, Duration.ofSeconds(5));
+        
+        CompletableFuture<String> good = submit(record("good"));
+        CompletableFuture<String> bad = submit(() -> {
+            record("bad").get();
+            throw new RuntimeException("BAD_REQUEST: rejected");
+        });
+        CompletableFuture<String> other = submit(record("other"));
+        
+        assertEquals("good", good.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertEquals("other", other.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        assertEquals("BAD_REQUEST: rejected", failure.getCause().getMessage());
+        
+        // The shared attempt was rolled back; each write then ran on its own
+        assertEquals(Set.of("good", "other"), Set.copyOf(committed));
+        assertEquals(2, committed.size());
+        assertEquals(4, transactions.size());
+    }
+    
+    @Test
+    void rejectsWritesOnceStopped() throws Exception {
+        executor = start(8, Duration.ofMillis(1));
+        assertEquals("before", executor.execute(record("before")));
+        
+        executor.stop();
+        assertThrows(IllegalStateException.class, () -> executor.execute(record("after")));
+        assertEquals(List.of("before"), List.copyOf(committed));
+    }
+    
+    @Test
+    void failsQueuedWritesWhenWriterDies() throws Exception {
+        executor = start(1, Duration.ZERO);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = submit(() -> {
+            running.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            // Leaves the writer thread interrupted, so it stops after this batch
+            Thread.currentThread().interrupt();
+            return "first";
+        });
+        
+        running.await();
+        AtomicReference<RuntimeException> queuedFailure = new AtomicReference<>();
+        Thread waiting = new Thread(() -> {
+            try {
+                executor.execute(record("queued"));
+            } catch (RuntimeException e) {
+                queuedFailure.set(e);
+            }
+        });
+        waiting.start();
+        // Once the caller waits for its result, its write is queued behind the blocked one
+        while (waiting.getState() != Thread.State.TIMED_WAITING && waiting.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        
+        assertEquals("first", first.get(TIMEOUT.toSeconds(), TimeUnit.SECONDS));
+        waiting.join();
+        assertInstanceOf(IllegalStateException.class, queuedFailure.get());
+        assertThrows(IllegalStateException.class, () -> executor.execute(record("late")));
+        assertTrue(committed.isEmpty(), "neither the queued nor the late write ran");
+    }
+    
+    private GroupCommitExecutor start(int maxBatchSize, Duration maxWait) {
+        GroupCommitExecutor started = new GroupCommitExecutor(transactionManager, shardRouter, true, maxBatchSize, maxWait, TIMEOUT);
+        started.start();
+        return started;
+    }
+    
+    private CompletableFuture<String> submit(Supplier<String> write) {
+        return CompletableFuture.supplyAsync(() -> executor.execute(write), callers);
+    }
+    
+    private Supplier<String> record(String name) {
+        return () -> {
+            transactions.add(TransactionSynchronizationManager.getResource(entityManagerFactory));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed.add(name);
+                }
+            });
+            return name;
+        };
+    }
+}
@@ -0,0 +1,116 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.event.PostActivityEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HomeFeedTests {
+    
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    
+    private final HomeFeed feed = new HomeFeed(3);
+    
+    @Test
+    void activityAlreadyInRefreshIsNotCountedTwice() {
+        // The refresh read the post after the like and the comment had committed...
+        feed.replace(List.of(post("p", 0, 1, 1, 2)), true);
+        // ...and their events only arrive afterwards
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.LIKE_ADDED, post("p", 0, 1, 0, 1), "fan", NOW));
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.COMMENT_CREATED, post("p", 0, 1, 1, 2), "fan", NOW));
+        
+        PostResponse served = firstPage().getItems().get(0);
+        assertEquals(1, served.getLikesCount());
+        assertEquals(1, served.getCommentsCount());
+        
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.LIKE_REMOVED, post("p", 0, 0, 1, 3), "fan", NOW));
+        assertEquals(0, firstPage().getItems().get(0).getLikesCount());
+    }
+    
+    @Test
+    void earlierCommitNeverOverwritesLaterOne() {
+        feed.replace(List.of(post("p", 0, 0, 0, 0)), true);
+        // Two likes commit in turn, but their listeners run the other way round
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.LIKE_ADDED, post("p", 0, 2, 0, 2), "second", NOW));
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.LIKE_ADDED, post("p", 0, 1, 0, 1), "first", NOW));
+        assertEquals(2, firstPage().getItems().get(0).getLikesCount());
+    }
+    
+    @Test
+    void refreshKeepsConcurrentActivity() {
+        feed.replace(List.of(post("p", 0, 0, 0, 0), post("gone", -1, 0, 0, 0)), true);
+        
+        feed.startRecording();
+        // All three commit while the refresh reads, after it has read the rows they change
+        feed.onPostActivity(PostActivityEvent.forPost(PostActivityEvent.Type.POST_CREATED, post("new", 1, 0, 0, 0)));
+        feed.onPostActivity(PostActivityEvent.forActivity(PostActivityEvent.Type.LIKE_ADDED, post("p", 0, 1, 0, 1), "fan", NOW));
+        feed.onPostActivity(PostActivityEvent.of(PostActivityEvent.Type.POST_DELETED, "gone", null));
+        long modificationCount = feed.modificationCount();
+        feed.replace(List.of(post("p", 0, 0, 0, 0), post("gone", -1, 0, 0, 0)), true);
+        
+        assertEquals(List.of("new", "p"), ids(firstPage()));
+        assertEquals(1, firstPage().getItems().get(1).getLikesCount());
+        assertTrue(feed.modificationCount() > modificationCount, "cached pages of the old contents are superseded");
+    }
+    
+    @Test
+    void overflowingPostsAreEvictedOldestFirst() {
+        feed.replace(List.of(post("c", 2, 0, 0, 0), post("b", 1, 0, 0, 0), post("a", 0, 0, 0, 0)), true);
+        feed.onPostActivity(PostActivityEvent.forPost(PostActivityEvent.Type.POST_CREATED, post("d", 3, 0, 0, 0)));
+        
+        CursorPage<PostResponse> page = feed.page(null, 2).orElseThrow();
+        assertEquals(List.of("d", "c"), ids(page));
+        // The feed no longer holds every post, so the end of it is left to the database
+        assertTrue(feed.page(null, 3).isEmpty());
+    }
+    
+    @Test
+    void readersNeverSeeHalfRefreshedFeed() throws Exception {
+        List<PostResponse> first = List.of(post("a2", 2, 0, 0, 0), post("a1", 1, 0, 0, 0), post("a0", 0, 0, 0, 0));
+        List<PostResponse> second = List.of(post("b2", 2, 0, 0, 0), post("b1", 1, 0, 0, 0), post("b0", 0, 0, 0, 0));
+        feed.replace(first, true);
+        
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<List<String>> torn = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && torn.get() == null) {
+                List<String> ids = ids(feed.page(null, 3).orElseThrow());
+                if (!ids.equals(List.of("a2", "a1", "a0")) && !ids.equals(List.of("b2", "b1", "b0"))) {
+                    torn.set(ids);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            feed.replace(i % 2 == 0 ? second : first, true);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(torn.get(), "a reader saw a mix of two refreshes");
+    }
+    
+    private CursorPage<PostResponse> firstPage() {
+        return feed.page(null, 10).orElseThrow();
+    }
+    
+    private static List<String> ids(CursorPage<PostResponse> page) {
+        List<String> ids = new ArrayList<>();
+        page.getItems().forEach(post -> ids.add(post.getId()));
+        return ids;
+    }
+    
+    private static PostResponse post(String id, int minutes, int likes, int comments, long summaryVersion) {
+        LocalDateTime createdAt = NOW.plusMinutes(minutes);
+        return new PostResponse(id, "author", "Post " + id, createdAt, createdAt, likes, comments, summaryVersion);
+    }
+}
@@ -0,0 +1,133 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.LikeResponse;
+import com.contoso.socialapp.dto.LikeStatusResponse;
+import com.contoso.socialapp.dto.NewPostRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Liking and unliking are single conditional statements, followed only when
+ * they changed something by the counter update that also returns the post;
+ * repeating either one must leave the likes table, the post's counter and its
+ * summary version unchanged. A batch like status answers in the order the
+ * posts were asked for.
+ */
+@SocialAppTest
+class LikeServiceTests {
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private String postId;
+    
+    @BeforeEach
+    void createPost() {
+        postId = postService.createPost(new NewPostRequest("author", "Like me")).getId();
+    }
+    
+    @Test
+    void repeatedLikeIsIdempotent() {
+        LikeResponse first = likeService.addLike(postId, like("fan")).orElseThrow();
+        LikeResponse second = likeService.addLike(postId, like("fan")).orElseThrow();
+        
+        assertEquals(first.getLikedAt(), second.getLikedAt());
+        assertEquals(1, likeRows());
+        assertEquals(1, likesCount());
+    }
+    
+    @Test
+    void repeatedUnlikeIsIdempotent() {
+        likeService.addLike(postId, like("fan"));
+        
+        assertTrue(likeService.removeLike(postId, "fan"));
+        assertFalse(likeService.removeLike(postId, "fan"));
+        assertEquals(0, likeRows());
+        assertEquals(0, likesCount());
+    }
+    
+    @Test
+    void summaryVersionMovesOnlyWithTheCounter() {
+        likeService.addLike(postId, like("fan"));
+        likeService.addLike(postId, like("fan"));
+        assertEquals(1, summaryVersion());
+        
+        likeService.removeLike(postId, "fan");
+        likeService.removeLike(postId, "fan");
+        assertEquals(2, summaryVersion());
+    }
+    
+    @Test
+    void likingMissingPostInsertsNothing() {
+        String missing = UUID.randomUUID().toString();
+        
+        assertEquals(Optional.empty(), likeService.addLike(missing, like("fan")));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE post_id = ?", Integer.class, missing));
+    }
+    
+    @Test
+    void likeStatusKeepsRequestOrder() {
+        String second = postService.createPost(new NewPostRequest("author", "Like me too")).getId();
+        String unliked = postService.createPost(new NewPostRequest("author", "Not me")).getId();
+        String missing = UUID.randomUUID().toString();
+        // Liked in the opposite order to the one asked for below
+        likeService.addLike(second, like("reader"));
+        likeService.addLike(postId, like("reader"));
+        
+        LikeStatusResponse status = likeService.getLikeStatus("reader", List.of(second, unliked, missing, postId, second));
+        assertEquals("reader", status.getUsername());
+        assertEquals(List.of(second, postId), status.getLikedPostIds());
+        
+        assertEquals(List.of(postId, second), likeService.getLikeStatus("reader", List.of(postId, missing, second)).getLikedPostIds());
+        assertEquals(List.of(), likeService.getLikeStatus("someone else", List.of(postId, second)).getLikedPostIds());
+    }
+    
+    @Test
+    void likeStatusChecksAtMostOneHundredPosts() {
+        likeService.addLike(postId, like("reader"));
+        List<String> postIds = new ArrayList<>(Collections.nCopies(99, UUID.randomUUID().toString()));
+        postIds.add(postId);
+        assertEquals(List.of(postId), likeService.getLikeStatus("reader", postIds).getLikedPostIds());
+        
+        postIds.add(UUID.randomUUID().toString());
+        RuntimeException tooMany = assertThrows(RuntimeException.class, () -> likeService.getLikeStatus("reader", postIds));
+        assertTrue(tooMany.getMessage().startsWith("BAD_REQUEST:"), tooMany.getMessage());
+    }
+    
+    private static LikeRequest like(String username) {
+        return new LikeRequest(username);
+    }
+    
+    private int likeRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes WHERE post_id = ?", Integer.class, postId);
+    }
+    
+    private int likesCount() {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+    
+    private long summaryVersion() {
+        return jdbcTemplate.queryForObject("SELECT summary_version FROM posts WHERE id = ?", Long.class, postId);
+    }
+}
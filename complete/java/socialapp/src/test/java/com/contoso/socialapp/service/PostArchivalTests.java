@@ -0,0 +1,176 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.ArchivedPost;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PageCursor;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.repository.PostArchive;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archiving moves an old post, its comments and its likes out of the hot
+ * tables, while the post and its comment thread stay readable through the
+ * regular service calls. The comments of a post that is still live are never
+ * looked up in the archive.
+ */
+@SocialAppTest
+class PostArchivalTests {
+    
+    @Autowired
+    private PostArchivalJob postArchivalJob;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private PostArchive postArchive;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Test
+    void archivedPostStaysReadable() throws Exception {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        String oldPostId = UUID.randomUUID().toString();
+        String recentPostId = UUID.randomUUID().toString();
+        List<String> commentIds = insertPost(oldPostId, now.minusDays(200), 3, 2);
+        insertPost(recentPostId, now.minusDays(1), 1, 1);
+        
+        assertEquals(1, postArchivalJob.archiveCreatedBefore(now.minusDays(90)));
+        
+        // Gone from the hot tables; the recent post is untouched
+        assertEquals(0, count("SELECT COUNT(*) FROM posts WHERE id = ?", oldPostId));
+        assertEquals(0, count("SELECT COUNT(*) FROM comments WHERE post_id = ?", oldPostId));
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE post_id = ?", oldPostId));
+        assertEquals(1, count("SELECT COUNT(*) FROM comments WHERE post_id = ?", recentPostId));
+        
+        PostResponse post = postService.getPostById(oldPostId).orElseThrow();
+        assertEquals("Old post", post.getContent());
+        assertEquals(3, post.getCommentsCount());
+        assertTrue(postService.postExists(oldPostId));
+        
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        commentService.writeCommentsByPostId(oldPostId, streamed);
+        List<CommentResponse> thread = objectMapper.readValue(streamed.toByteArray(), new TypeReference<List<CommentResponse>>() { });
+        assertEquals(commentIds, thread.stream().map(CommentResponse::getId).toList());
+        assertEquals(commentIds.get(1), commentService.getCommentById(oldPostId, commentIds.get(1)).orElseThrow().getId());
+        
+        CursorPage<CommentResponse> first = commentService.getCommentsAfter(oldPostId, null, 2);
+        assertEquals(commentIds.subList(0, 2), first.getItems().stream().map(CommentResponse::getId).toList());
+        CursorPage<CommentResponse> second = commentService.getCommentsAfter(oldPostId, first.getNextCursor(), 2);
+        assertEquals(commentIds.subList(2, 3), second.getItems().stream().map(CommentResponse::getId).toList());
+        assertNull(second.getNextCursor());
+        CursorPage<CommentResponse> back = commentService.getCommentsBefore(oldPostId, second.getPrevCursor(), 2);
+        assertEquals(commentIds.subList(0, 2), back.getItems().stream().map(CommentResponse::getId).toList());
+        
+        // Archived posts are read-only
+        assertTrue(likeService.addLike(oldPostId, new LikeRequest("latecomer")).isEmpty());
+        assertFalse(postService.deletePost(oldPostId));
+        
+        // Nothing left to move
+        assertEquals(0, postArchivalJob.archiveCreatedBefore(now.minusDays(90)));
+    }
+    
+    @Test
+    void livePostNeverReadsArchivedComments() {
+        PostResponse live = postService.createPost(new NewPostRequest("author", "Still here"));
+        CommentResponse only = commentService.createComment(live.getId(), new NewCommentRequest("fan", "Only comment")).orElseThrow();
+        // A stray archive entry under the live post's ID, with comments on either side of the real one
+        LocalDateTime at = only.getCreatedAt();
+        postArchive.store(List.of(new ArchivedPost(live, List.of(
+                archivedComment(live.getId(), at.minusDays(1)),
+                archivedComment(live.getId(), at.plusDays(1))), List.of())));
+        
+        String cursor = new PageCursor(only.getCreatedAt(), only.getId()).encode();
+        assertEquals(List.of(), commentService.getCommentsAfter(live.getId(), cursor, 5).getItems());
+        assertEquals(List.of(), commentService.getCommentsBefore(live.getId(), cursor, 5).getItems());
+        assertEquals(List.of(only.getId()), commentService.getCommentsAround(live.getId(), only.getId(), 5).orElseThrow()
+                .getItems().stream().map(CommentResponse::getId).toList());
+        assertTrue(commentService.getCommentsAround(live.getId(), "archived-" + at.plusDays(1), 5).isEmpty());
+        
+        commentService.deleteComment(live.getId(), only.getId());
+        assertEquals(List.of(), commentService.getCommentsAfter(live.getId(), null, 5).getItems());
+    }
+    
+    @Test
+    void readCacheWeighsThreadsByTheirText() {
+        PostResponse post = postService.createPost(new NewPostRequest("author", "Long thread"));
+        LocalDateTime at = post.getCreatedAt();
+        List<CommentResponse> comments = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            comments.add(new CommentResponse("long-" + i, post.getId(), "fan", "x".repeat(10_000), at, at));
+        }
+        postArchive.store(List.of(new ArchivedPost(post, comments, List.of())));
+        
+        double before = archiveMemory();
+        assertEquals(10, postArchive.find(post.getId()).orElseThrow().getComments().size());
+        // Two bytes per character of the 100,000 in the thread, rather than one entry among many
+        assertTrue(archiveMemory() - before >= 200_000, () -> "held " + (archiveMemory() - before));
+    }
+    
+    private double archiveMemory() {
+        return meterRegistry.get("cache.memory").tag("cache", "archive").gauge().value();
+    }
+    
+    private static CommentResponse archivedComment(String postId, LocalDateTime createdAt) {
+        return new CommentResponse("archived-" + createdAt, postId, "ghost", "From the archive", createdAt, createdAt);
+    }
+    
+    private List<String> insertPost(String postId, LocalDateTime createdAt, int comments, int likes) {
+        Timestamp at = Timestamp.valueOf(createdAt);
+        jdbcTemplate.update("INSERT INTO posts (id, username, content, created_at, updated_at, likes_count, comments_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", postId, "author", "Old post", at, at, likes, comments);
+        
+        List<String> commentIds = new ArrayList<>();
+        for (int i = 0; i < comments; i++) {
+            String commentId = UUID.randomUUID().toString();
+            Timestamp commentedAt = Timestamp.valueOf(createdAt.plusMinutes(i));
+            jdbcTemplate.update("INSERT INTO comments (id, post_id, username, content, created_at, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)", commentId, postId, "fan" + i, "Comment " + i, commentedAt, commentedAt);
+            commentIds.add(commentId);
+        }
+        for (int i = 0; i < likes; i++) {
+            jdbcTemplate.update("INSERT INTO likes (post_id, username, liked_at) VALUES (?, ?, ?)", postId, "fan" + i, at);
+        }
+        return commentIds;
+    }
+    
+    private long count(String sql, String id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
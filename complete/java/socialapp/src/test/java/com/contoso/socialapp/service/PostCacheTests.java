@@ -0,0 +1,89 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.LikeRequest;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PostResponse;
+import com.contoso.socialapp.dto.UpdateCommentRequest;
+import com.contoso.socialapp.dto.UpdatePostRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A cached post is served until a committed like, comment or edit changes it,
+ * and is then reloaded, so readers never see a stale summary.
+ */
+@SocialAppTest
+class PostCacheTests {
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private LikeService likeService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private String postId;
+    
+    @BeforeEach
+    void createCachedPost() {
+        postId = postService.createPost(new NewPostRequest("author", "Cache me")).getId();
+        postService.getPostById(postId);
+        double hits = gets("hit");
+        postService.getPostById(postId);
+        assertEquals(hits + 1, gets("hit"), "an unchanged post is served from the cache");
+    }
+    
+    @Test
+    void likesInvalidate() {
+        likeService.addLike(postId, new LikeRequest("fan"));
+        assertEquals(1, reloaded().getLikesCount());
+        
+        likeService.removeLike(postId, "fan");
+        assertEquals(0, reloaded().getLikesCount());
+    }
+    
+    @Test
+    void commentsInvalidate() {
+        CommentResponse comment = commentService.createComment(postId, new NewCommentRequest("fan", "Nice")).orElseThrow();
+        assertEquals(1, reloaded().getCommentsCount());
+        
+        // An edited comment leaves the summary as it was, so the cached copy stays
+        commentService.updateComment(postId, comment.getId(), new UpdateCommentRequest("fan", "Very nice"));
+        double hits = gets("hit");
+        assertEquals(1, postService.getPostById(postId).orElseThrow().getCommentsCount());
+        assertEquals(hits + 1, gets("hit"));
+        
+        commentService.deleteComment(postId, comment.getId());
+        assertEquals(0, reloaded().getCommentsCount());
+    }
+    
+    @Test
+    void updatesInvalidate() {
+        postService.updatePost(postId, new UpdatePostRequest("author", "Cache me again"));
+        assertEquals("Cache me again", reloaded().getContent());
+    }
+    
+    // Reads the post, checking that the read missed the cache and went to the database
+    private PostResponse reloaded() {
+        double misses = gets("miss");
+        PostResponse post = postService.getPostById(postId).orElseThrow();
+        assertEquals(misses + 1, gets("miss"), "a changed post is reloaded");
+        return post;
+    }
+    
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "posts").tag("result", result).functionCounter().count();
+    }
+}
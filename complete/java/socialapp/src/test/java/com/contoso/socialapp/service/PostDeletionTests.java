@@ -0,0 +1,97 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deleting a post must cost a fixed number of statements however many likes
+ * and comments it has, without loading any of them into the persistence context.
+ */
+@SocialAppTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class PostDeletionTests {
+    
+    private static final int LIKES = 100_000;
+    private static final int COMMENTS = 1_000;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Test
+    void deletesPopularPostWithBulkStatements() {
+        String postId = UUID.randomUUID().toString();
+        String otherPostId = UUID.randomUUID().toString();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            insertPost(postId, LIKES, COMMENTS);
+            insertPost(otherPostId, 1, 1);
+        });
+        
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        
+        assertTrue(postService.deletePost(postId));
+        
+        assertEquals(0, statistics.getEntityLoadCount(), "children must not be loaded");
+        assertEquals(3, statistics.getPrepareStatementCount(), "one delete each for likes, comments and the post");
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE post_id = ?", postId));
+        assertEquals(0, count("SELECT COUNT(*) FROM comments WHERE post_id = ?", postId));
+        assertEquals(0, count("SELECT COUNT(*) FROM posts WHERE id = ?", postId));
+        
+        // Other posts keep their children
+        assertEquals(1, count("SELECT COUNT(*) FROM likes WHERE post_id = ?", otherPostId));
+        assertEquals(1, count("SELECT COUNT(*) FROM comments WHERE post_id = ?", otherPostId));
+    }
+    
+    @Test
+    void reportsMissingPost() {
+        assertFalse(postService.deletePost(UUID.randomUUID().toString()));
+    }
+    
+    private void insertPost(String postId, int likes, int comments) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("INSERT INTO posts (id, username, content, created_at, updated_at, likes_count, comments_count) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", postId, "author", "Popular post", now, now, likes, comments);
+        
+        List<Object[]> likeRows = new ArrayList<>(likes);
+        for (int i = 0; i < likes; i++) {
+            likeRows.add(new Object[]{postId, "fan" + i, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO likes (post_id, username, liked_at) VALUES (?, ?, ?)", likeRows);
+        
+        List<Object[]> commentRows = new ArrayList<>(comments);
+        for (int i = 0; i < comments; i++) {
+            commentRows.add(new Object[]{UUID.randomUUID().toString(), postId, "fan" + i, "Comment " + i, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO comments (id, post_id, username, content, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", commentRows);
+    }
+    
+    private long count(String sql, String id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
@@ -0,0 +1,113 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Search latency over 1M posts, indexed by the same triggers that index posts
+ * created through the API. Post text is drawn from a vocabulary with a skewed
+ * (Zipf-like) word frequency, so the queries cover very common, mid-frequency
+ * and rare words as well as multi-word queries.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SocialAppTest
+// Each benchmark seeds a database of its own, dropped with the context afterwards
+@DirtiesContext
+class SearchBenchmarkTests {
+    
+    private static final int POSTS = 1_000_000;
+    private static final int WORDS_PER_POST = 12;
+    private static final int VOCABULARY = 20_000;
+    private static final int BATCH = 10_000;
+    private static final int WARMUP_QUERIES = 200;
+    private static final int MEASURED_QUERIES = 1_000;
+    
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @BeforeEach
+    void seed() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Long.class) >= POSTS) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < POSTS; from += BATCH) {
+            int first = from;
+            transaction.executeWithoutResult(status -> {
+                List<Object[]> rows = new ArrayList<>(BATCH);
+                for (int i = first; i < first + BATCH; i++) {
+                    Timestamp at = Timestamp.valueOf(start.plusSeconds(i * 30L));
+                    rows.add(new Object[]{UUID.randomUUID().toString(), "user" + (i % 5_000), text(random), at, at});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO posts (id, username, content, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?)", rows);
+            });
+        }
+        jdbcTemplate.execute("INSERT INTO search_index (search_index) VALUES ('optimize')");
+    }
+    
+    @Test
+    void searchLatencyAtOneMillionPosts() {
+        System.out.printf("%-24s %10s %10s %10s%n", "query", "p50 us", "p99 us", "matches");
+        for (String query : List.of(word(0), word(50), word(2_000), word(15_000), word(0) + " " + word(1), word(10) + " " + word(500))) {
+            report(query);
+        }
+    }
+    
+    private void report(String query) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            searchService.search(query, null, 20);
+        }
+        long[] micros = new long[MEASURED_QUERIES];
+        int matches = 0;
+        for (int i = 0; i < MEASURED_QUERIES; i++) {
+            long begin = System.nanoTime();
+            matches = searchService.search(query, null, 20).getItems().size();
+            micros[i] = (System.nanoTime() - begin) / 1_000;
+        }
+        Arrays.sort(micros);
+        System.out.printf("%-24s %10d %10d %10d%n", query, micros[MEASURED_QUERIES / 2],
+                micros[MEASURED_QUERIES * 99 / 100], matches);
+        assertFalse(matches == 0, query + " should match some posts");
+    }
+    
+    // Rank r is drawn with probability roughly proportional to 1 / (r + 1)
+    private static String text(SplittableRandom random) {
+        StringBuilder text = new StringBuilder();
+        for (int w = 0; w < WORDS_PER_POST; w++) {
+            int rank = (int) Math.floor(Math.pow(VOCABULARY + 1, random.nextDouble())) - 1;
+            text.append(w == 0 ? "" : " ").append(word(Math.min(rank, VOCABULARY - 1)));
+        }
+        return text.toString();
+    }
+    
+    private static String word(int rank) {
+        return "w" + Integer.toString(rank, 36);
+    }
+}
@@ -0,0 +1,85 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.SearchResult;
+import com.contoso.socialapp.dto.UpdatePostRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The search index follows post and comment content through creates, edits
+ * and deletes, and pages through ranked matches.
+ */
+@SocialAppTest
+class SearchServiceTests {
+    
+    @Autowired
+    private SearchService searchService;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Test
+    void indexFollowsContentChanges() {
+        String postId = postService.createPost(new NewPostRequest("author", "Sourdough starter tips")).getId();
+        String commentId = commentService.createComment(postId, new NewCommentRequest("fan", "My sourdough never rises"))
+                .orElseThrow().getId();
+        
+        List<SearchResult> matches = search("sourdough");
+        assertEquals(2, matches.size());
+        assertTrue(matches.stream().anyMatch(match -> match.getType() == SearchResult.Type.POST
+                && match.getPostId().equals(postId) && match.getCommentId() == null));
+        assertTrue(matches.stream().anyMatch(match -> match.getType() == SearchResult.Type.COMMENT
+                && match.getPostId().equals(postId) && commentId.equals(match.getCommentId())));
+        assertEquals(1, search("sourdough rises").size(), "every word must match");
+        
+        postService.updatePost(postId, new UpdatePostRequest("author", "Focaccia tips"));
+        assertEquals(1, search("sourdough").size());
+        assertEquals(postId, search("focaccia").get(0).getPostId());
+        
+        postService.deletePost(postId);
+        assertTrue(search("sourdough").isEmpty());
+        assertTrue(search("focaccia").isEmpty());
+    }
+    
+    @Test
+    void pagesThroughRankedMatches() {
+        postService.createPost(new NewPostRequest("author", "kayak trip, and one more kayak, kayak kayak"));
+        postService.createPost(new NewPostRequest("author", "Bought a kayak paddle and a long list of other camping gear"));
+        postService.createPost(new NewPostRequest("author", "Rented a kayak"));
+        
+        CursorPage<SearchResult> first = searchService.search("Kayak", null, 2);
+        assertEquals(2, first.getItems().size());
+        assertTrue(first.getItems().get(0).getContent().startsWith("kayak trip"), "the densest match ranks first");
+        assertNotNull(first.getNextCursor());
+        
+        CursorPage<SearchResult> second = searchService.search("Kayak", first.getNextCursor(), 2);
+        assertEquals(1, second.getItems().size());
+        assertNull(second.getNextCursor());
+    }
+    
+    @Test
+    void treatsQuerySyntaxAsPlainWords() {
+        postService.createPost(new NewPostRequest("author", "Is this \"quoted\" OR NOT?"));
+        assertEquals(1, search("\"quoted\" OR").size());
+        assertThrows(RuntimeException.class, () -> searchService.search("  ", null, 20));
+    }
+    
+    private List<SearchResult> search(String query) {
+        return searchService.search(query, null, 20).getItems();
+    }
+}
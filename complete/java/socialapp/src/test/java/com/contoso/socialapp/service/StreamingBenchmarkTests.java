@@ -0,0 +1,123 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Streams the unpaged listing of 1M posts and checks that the live heap stays
+ * under a fixed ceiling while it does; the same listing built as a list would
+ * hold several hundred megabytes. The live heap is sampled after a forced GC
+ * every few megabytes of output. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+@SocialAppTest
+// Each benchmark seeds a database of its own, dropped with the context afterwards
+@DirtiesContext
+class StreamingBenchmarkTests {
+    
+    private static final int POSTS = 1_000_000;
+    private static final int BATCH = 10_000;
+    private static final long SAMPLE_EVERY_BYTES = 16L * 1024 * 1024;
+    private static final long HEAP_CEILING_BYTES = 64L * 1024 * 1024;
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @BeforeEach
+    void seed() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Long.class) >= POSTS) {
+            return;
+        }
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < POSTS; from += BATCH) {
+            int first = from;
+            transaction.executeWithoutResult(status -> {
+                List<Object[]> rows = new ArrayList<>(BATCH);
+                for (int i = first; i < first + BATCH; i++) {
+                    Timestamp at = Timestamp.valueOf(start.plusSeconds(i * 30L));
+                    rows.add(new Object[]{UUID.randomUUID().toString(), "user" + (i % 5_000),
+                            "Streaming benchmark post number " + i + ", long enough to look like a real post", at, at});
+                }
+                jdbcTemplate.batchUpdate("INSERT INTO posts (id, username, content, created_at, updated_at) "
+                        + "VALUES (?, ?, ?, ?, ?)", rows);
+            });
+        }
+    }
+    
+    @Test
+    void streamsOneMillionPostsUnderHeapCeiling() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSamplingOutputStream out = new HeapSamplingOutputStream(memory);
+        
+        long begin = System.nanoTime();
+        postService.writeAllPosts(out);
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        
+        long growth = out.peakUsed - baseline;
+        System.out.printf("%,d bytes in %,d ms, first byte after %,d ms; live heap grew by at most %,d KiB over %d samples%n",
+                out.bytes, millis, (out.firstByteAt - begin) / 1_000_000, growth / 1024, out.samples);
+        assertTrue(out.samples > 5, "the listing should be large enough to sample repeatedly");
+        assertTrue(growth < HEAP_CEILING_BYTES, "live heap grew by " + growth + " bytes while streaming");
+    }
+    
+    // Discards the output, forcing a GC and recording the live heap every SAMPLE_EVERY_BYTES
+    private static final class HeapSamplingOutputStream extends OutputStream {
+        
+        private final MemoryMXBean memory;
+        private long bytes;
+        private long nextSample = SAMPLE_EVERY_BYTES;
+        private long firstByteAt;
+        private long peakUsed;
+        private int samples;
+        
+        HeapSamplingOutputStream(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+        
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (bytes == 0) {
+                firstByteAt = System.nanoTime();
+            }
+            bytes += len;
+            if (bytes >= nextSample) {
+                nextSample += SAMPLE_EVERY_BYTES;
+                System.gc();
+                peakUsed = Math.max(peakUsed, memory.getHeapMemoryUsage().getUsed());
+                samples++;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CommentResponse;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.NewCommentRequest;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PostResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Streamed listings must produce exactly the JSON the paged and in-memory
+ * listings describe, whether comments come from the cache or the database.
+ */
+@SocialAppTest(properties = {
+        "socialapp.cache.comments.max-entry-size=1KB",
+        // Keep the in-memory feed out of the way so pages come from the database
+        "socialapp.feed.capacity=1"
+})
+class StreamingListingsTests {
+    
+    @Autowired
+    private PostService postService;
+    
+    @Autowired
+    private CommentService commentService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Test
+    void streamsPostsInFeedOrder() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            postService.createPost(new NewPostRequest("user" + i, "Post " + i));
+        }
+        
+        List<PostResponse> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PostResponse> page = postService.getPosts(cursor, 10);
+            paged.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        postService.writeAllPosts(out);
+        assertEquals(paged, objectMapper.readValue(out.toByteArray(), new TypeReference<List<PostResponse>>() { }));
+    }
+    
+    @Test
+    void streamsCommentsFromCacheOrCursor() throws Exception {
+        String shortThread = postService.createPost(new NewPostRequest("author", "Short")).getId();
+        commentService.createComment(shortThread, new NewCommentRequest("fan", "Only one"));
+        String longThread = postService.createPost(new NewPostRequest("author", "Long")).getId();
+        for (int i = 0; i < 40; i++) {
+            commentService.createComment(longThread, new NewCommentRequest("fan" + i, "Comment number " + i));
+        }
+        
+        byte[] miss = comments(shortThread);
+        double hits = hits();
+        byte[] hit = comments(shortThread);
+        assertEquals(hits + 1, hits(), "a small thread is kept after streaming it");
+        assertArrayEquals(miss, hit);
+        assertEquals(commentService.getCommentsAfter(shortThread, null, 50).getItems(), parse(hit));
+        
+        byte[] first = comments(longThread);
+        hits = hits();
+        byte[] second = comments(longThread);
+        assertEquals(hits, hits(), "a thread over max-entry-size is streamed again rather than buffered");
+        assertArrayEquals(first, second);
+        assertEquals(40, parse(second).size());
+    }
+    
+    private byte[] comments(String postId) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        commentService.writeCommentsByPostId(postId, out);
+        return out.toByteArray();
+    }
+    
+    private List<CommentResponse> parse(byte[] json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<List<CommentResponse>>() { });
+    }
+    
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", "comments").tag("result", "hit").functionCounter().count();
+    }
+}
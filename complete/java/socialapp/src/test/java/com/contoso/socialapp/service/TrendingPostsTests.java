@@ -0,0 +1,173 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.dto.ActivityCount;
+import com.contoso.socialapp.event.PostActivityEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrendingPostsTests {
+    
+    private static final LocalDateTime NOW = LocalDateTime.now();
+    
+    private final TrendingPosts trending = new TrendingPosts(2, Duration.ofHours(6));
+    
+    @Test
+    void ranksByDecayedActivity() {
+        // Two likes half a day ago are worth half a like now
+        apply(PostActivityEvent.Type.LIKE_ADDED, "old", NOW.minusHours(12));
+        apply(PostActivityEvent.Type.LIKE_ADDED, "old", NOW.minusHours(12));
+        apply(PostActivityEvent.Type.LIKE_ADDED, "fresh", NOW);
+        assertEquals(List.of("fresh", "old"), trending.top(10));
+        
+        apply(PostActivityEvent.Type.COMMENT_CREATED, "discussed", NOW);
+        assertEquals(List.of("discussed", "fresh"), trending.top(10), "the heap keeps only the top K");
+        assertEquals(List.of("discussed"), trending.top(1));
+    }
+    
+    @Test
+    void dropsDeletedAndArchivedPosts() {
+        apply(PostActivityEvent.Type.LIKE_ADDED, "a", NOW);
+        apply(PostActivityEvent.Type.LIKE_ADDED, "b", NOW);
+        apply(PostActivityEvent.Type.POST_DELETED, "a", NOW);
+        apply(PostActivityEvent.Type.POST_ARCHIVED, "b", NOW);
+        assertTrue(trending.top(10).isEmpty());
+    }
+    
+    @Test
+    void unlikeCancelsLike() {
+        apply(PostActivityEvent.Type.LIKE_ADDED, "a", NOW);
+        apply(PostActivityEvent.Type.LIKE_ADDED, "b", NOW);
+        apply(PostActivityEvent.Type.LIKE_ADDED, "b", NOW);
+        apply(PostActivityEvent.Type.LIKE_REMOVED, "b", NOW);
+        apply(PostActivityEvent.Type.LIKE_REMOVED, "b", NOW);
+        apply(PostActivityEvent.Type.LIKE_ADDED, "a", NOW);
+        assertEquals(List.of("a", "b"), trending.top(10));
+    }
+    
+    @Test
+    void survivesLandmarkRebase() {
+        // Weeks of activity push the exponent past the rebase threshold several times
+        for (int hour = 0; hour < 24 * 30; hour++) {
+            apply(PostActivityEvent.Type.LIKE_ADDED, "steady", NOW.plusHours(hour));
+        }
+        apply(PostActivityEvent.Type.COMMENT_CREATED, "latest", NOW.plusHours(24 * 30));
+        assertEquals(List.of("steady", "latest"), trending.top(10));
+    }
+    
+    @Test
+    void rebuildReplaysActivityFromAfterItsCutoff() {
+        TrendingPosts ranking = new TrendingPosts(3, Duration.ofHours(6));
+        ranking.startRecording();
+        // Both commit while the rebuild reads; only the earlier one is in what it read
+        ranking.onPostActivity(event(PostActivityEvent.Type.LIKE_ADDED, "counted", NOW.minusSeconds(1)));
+        ranking.onPostActivity(event(PostActivityEvent.Type.LIKE_ADDED, "late", NOW.plusSeconds(1)));
+        ranking.replace(List.of(new ActivityCount("counted", 1, NOW.minusSeconds(1), NOW.minusSeconds(1))), List.of(),
+                postId -> NOW);
+        
+        // Each counted once: a single like a minute later outranks both
+        ranking.onPostActivity(event(PostActivityEvent.Type.LIKE_ADDED, "rival", NOW.plusMinutes(1)));
+        assertEquals(List.of("rival", "late", "counted"), ranking.top(10));
+    }
+    
+    @Test
+    void rebuildCountsActivityInFlightAtItsStartOnce() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            trending.onPostActivityPublished(event(PostActivityEvent.Type.LIKE_ADDED, "live", NOW));
+            // The rebuild read the like after it committed, but before its event was applied
+            trending.startRecording();
+            complete(TransactionSynchronization.STATUS_COMMITTED);
+            trending.replace(List.of(new ActivityCount("live", 1, NOW, NOW)), List.of(), postId -> NOW.plusSeconds(1));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        
+        // Counted once: a single like a minute later outranks it
+        apply(PostActivityEvent.Type.LIKE_ADDED, "rival", NOW.plusMinutes(1));
+        assertEquals(List.of("rival", "live"), trending.top(10));
+    }
+    
+    @Test
+    void rebuildsWhileEventsKeepArriving() throws Exception {
+        TrendingPosts ranking = new TrendingPosts(3, Duration.ofHours(6));
+        // The likes table: a like is stored, then its event is applied once it has committed
+        List<ActivityCount> likes = Collections.synchronizedList(new ArrayList<>());
+        Thread writer = new Thread(() -> {
+            for (int round = 0; round < 20_000; round++) {
+                for (String postId : List.of("busiest", "busiest", "busiest", "busy", "busy", "quiet")) {
+                    LocalDateTime likedAt = LocalDateTime.now();
+                    likes.add(new ActivityCount(postId, 1, likedAt, likedAt));
+                    ranking.onPostActivity(event(PostActivityEvent.Type.LIKE_ADDED, postId, likedAt));
+                }
+            }
+        });
+        writer.start();
+        while (likes.size() < 60 && writer.isAlive()) {
+            Thread.onSpinWait();
+        }
+        int rebuilds = 0;
+        do {
+            ranking.startRecording();
+            LocalDateTime cutoff = LocalDateTime.now();
+            List<ActivityCount> read;
+            synchronized (likes) {
+                read = likes.stream().filter(like -> like.getFirst().isBefore(cutoff)).toList();
+            }
+            ranking.replace(read, List.of(), postId -> cutoff);
+            // Neither emptied nor reduced to what arrived since the rebuild started
+            assertEquals(List.of("busiest", "busy", "quiet"), ranking.top(10), "rebuild " + ++rebuilds);
+        } while (writer.isAlive());
+        writer.join();
+        assertEquals(List.of("busiest", "busy", "quiet"), ranking.top(10));
+    }
+    
+    @Test
+    void rolledBackActivityIsNeverApplied() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            trending.onPostActivityPublished(event(PostActivityEvent.Type.LIKE_ADDED, "undone", NOW));
+            complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertTrue(trending.top(10).isEmpty());
+        
+        trending.replace(List.of(new ActivityCount("rebuilt", 1, NOW, NOW)), List.of(), postId -> NOW);
+        assertEquals(List.of("rebuilt"), trending.top(10));
+    }
+    
+    @Test
+    void rebuiltCountsScoreAtTheirMidpoint() {
+        // Two likes centred half a life ago are worth one like now
+        List<ActivityCount> likes = List.of(
+                new ActivityCount("pair", 2, NOW.minusHours(6).minusMinutes(30), NOW.minusHours(5).minusMinutes(30)),
+                new ActivityCount("earlier", 1, NOW.minusMinutes(1), NOW.minusMinutes(1)),
+                new ActivityCount("later", 1, NOW.plusMinutes(1), NOW.plusMinutes(1)));
+        TrendingPosts ranking = new TrendingPosts(3, Duration.ofHours(6));
+        ranking.replace(likes, List.of(), postId -> NOW);
+        assertEquals(List.of("later", "pair", "earlier"), ranking.top(10));
+    }
+    
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+    
+    private static PostActivityEvent event(PostActivityEvent.Type type, String postId, LocalDateTime at) {
+        return new PostActivityEvent(type, postId, "someone", at, null);
+    }
+    
+    private void apply(PostActivityEvent.Type type, String postId, LocalDateTime at) {
+        trending.onPostActivity(event(type, postId, at));
+    }
+}
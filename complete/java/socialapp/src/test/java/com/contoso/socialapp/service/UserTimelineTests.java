@@ -0,0 +1,50 @@
+package com.contoso.socialapp.service;
+
+import com.contoso.socialapp.SocialAppTest;
+import com.contoso.socialapp.dto.CursorPage;
+import com.contoso.socialapp.dto.NewPostRequest;
+import com.contoso.socialapp.dto.PostResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Paging through one user's timeline returns exactly their posts, newest
+ * first, with nothing skipped or repeated across pages.
+ */
+@SocialAppTest
+class UserTimelineTests {
+    
+    @Autowired
+    private PostService postService;
+    
+    @Test
+    void pagesThroughOneUsersPosts() {
+        List<PostResponse> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(postService.createPost(new NewPostRequest("alice", "Post " + i)));
+            postService.createPost(new NewPostRequest("bob", "Other " + i));
+        }
+        // Posts created within the same millisecond are ordered by ID, like the feed
+        List<String> expected = created.stream()
+                .sorted(Comparator.comparing(PostResponse::getCreatedAt, Comparator.reverseOrder())
+                        .thenComparing(PostResponse::getId))
+                .map(PostResponse::getId)
+                .toList();
+        
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<PostResponse> page = postService.getPostsByUser("alice", cursor, 2);
+            page.getItems().forEach(post -> seen.add(post.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        
+        assertEquals(expected, seen);
+    }
+}